@@ -0,0 +1,87 @@
+package com.wen.commadapter.core.benchmark;
+
+import com.wen.commadapter.core.QuickSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 修改数据的吞吐量：快照只复制一条路径，对比整个列表复制一份
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SnapshotBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private QuickSnapshot<Integer> mSnapshot;
+    private List<Integer> mList;
+    private Random mRandom;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mList.add(i);
+        }
+        mSnapshot = QuickSnapshot.copyOf(mList);
+        mRandom = new Random(42);
+    }
+
+    @Benchmark
+    public QuickSnapshot<Integer> snapshotAdd() {
+        return mSnapshot.plus(size);
+    }
+
+    @Benchmark
+    public QuickSnapshot<Integer> snapshotInsert() {
+        return mSnapshot.plus(mRandom.nextInt(size), size);
+    }
+
+    @Benchmark
+    public QuickSnapshot<Integer> snapshotSet() {
+        return mSnapshot.with(mRandom.nextInt(size), -1);
+    }
+
+    @Benchmark
+    public QuickSnapshot<Integer> snapshotRemove() {
+        return mSnapshot.minus(mRandom.nextInt(size));
+    }
+
+    @Benchmark
+    public Integer snapshotGet() {
+        return mSnapshot.get(mRandom.nextInt(size));
+    }
+
+    /**
+     * 以前的做法：修改前复制一份，其它Adapter拿到的旧列表不受影响
+     */
+    @Benchmark
+    public List<Integer> copyOnWriteInsert() {
+        List<Integer> copy = new ArrayList<>(mList.size() + 1);
+        copy.addAll(mList);
+        copy.add(mRandom.nextInt(size), size);
+        return copy;
+    }
+
+    @Benchmark
+    public List<Integer> copyOnWriteSet() {
+        List<Integer> copy = new ArrayList<>(mList);
+        copy.set(mRandom.nextInt(size), -1);
+        return copy;
+    }
+}
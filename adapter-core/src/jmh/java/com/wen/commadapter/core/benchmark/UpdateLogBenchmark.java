@@ -0,0 +1,108 @@
+package com.wen.commadapter.core.benchmark;
+
+import com.wen.commadapter.core.QuickUpdateLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量修改时合并通知：记录size次修改，再分发出去，返回实际分发的通知数
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpdateLogBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private final QuickUpdateLog mLog = new QuickUpdateLog();
+    private final CountingReceiver mReceiver = new CountingReceiver();
+
+    /**
+     * 连续添加，合并成一次插入
+     */
+    @Benchmark
+    public int appendRun() {
+        for (int i = 0; i < size; i++) {
+            mLog.insert(i, 1);
+        }
+        return dispatch();
+    }
+
+    /**
+     * 逐个修改相邻条目，合并成一次修改
+     */
+    @Benchmark
+    public int changeRun() {
+        for (int i = 0; i < size; i++) {
+            mLog.change(i, 1, null);
+        }
+        return dispatch();
+    }
+
+    /**
+     * 从后往前删除，合并成一次删除
+     */
+    @Benchmark
+    public int removeRun() {
+        for (int i = size - 1; i >= 0; i--) {
+            mLog.remove(i, 1);
+        }
+        return dispatch();
+    }
+
+    /**
+     * 隔一个修改一个，合并不了，看记录本身的开销
+     */
+    @Benchmark
+    public int scatteredChanges() {
+        for (int i = 0; i < size; i++) {
+            mLog.change(i * 2, 1, null);
+        }
+        return dispatch();
+    }
+
+    private int dispatch() {
+        mReceiver.count = 0;
+        mLog.dispatchTo(mReceiver);
+        mLog.clear();
+        return mReceiver.count;
+    }
+
+    private static class CountingReceiver implements QuickUpdateLog.Receiver {
+        int count;
+
+        @Override
+        public void onInserted(int position, int count) {
+            this.count++;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            this.count++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            this.count++;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            this.count++;
+        }
+
+        @Override
+        public void onInvalidated() {
+            this.count++;
+        }
+    }
+}
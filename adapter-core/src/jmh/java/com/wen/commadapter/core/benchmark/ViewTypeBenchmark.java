@@ -0,0 +1,155 @@
+package com.wen.commadapter.core.benchmark;
+
+import com.wen.commadapter.core.QuickMultiSupport;
+import com.wen.commadapter.core.QuickSpanCache;
+import com.wen.commadapter.core.QuickViewTypeRegistry;
+import com.wen.commadapter.core.QuickViewTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多条目类型查找：注册表按Class缓存、对比instanceof判断，
+ * 以及网格按行号缓存计算所在的行
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewTypeBenchmark {
+    private static final int SPAN_COUNT = 3;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Object[] mData;
+    private QuickViewTypeRegistry<Object> mRegistry;
+    private QuickMultiSupport<Object> mInstanceOfSupport;
+    private QuickViewTypes<Object> mViewTypes;
+    private QuickSpanCache mSpanCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mData = new Object[size];
+        for (int i = 0; i < size; i++) {
+            // 每20条一个标题，其它是两种内容
+            mData[i] = i % 20 == 0 ? new Header() : i % 2 == 0 ? new Text() : new Image();
+        }
+        mRegistry = new QuickViewTypeRegistry<>()
+                .register(Header.class, 1, 101, true)
+                .register(Text.class, 2, 102)
+                .register(Image.class, 3, 103);
+        mInstanceOfSupport = new InstanceOfSupport();
+        mViewTypes = new QuickViewTypes<>(mRegistry);
+        mSpanCache = new QuickSpanCache(new QuickSpanCache.SpanSizer() {
+            @Override
+            public int getSpanSize(int position) {
+                return mViewTypes.isSpan(mViewTypes.getItemViewType(mData[position])) ? SPAN_COUNT : 1;
+            }
+        });
+    }
+
+    @Benchmark
+    public int registryLookup() {
+        int sum = 0;
+        for (Object item : mData) {
+            sum += mRegistry.getItemViewType(item);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int instanceOfLookup() {
+        int sum = 0;
+        for (Object item : mData) {
+            sum += mInstanceOfSupport.getItemViewType(item);
+        }
+        return sum;
+    }
+
+    /**
+     * 查viewType并按viewType取布局和是否合并，创建ViewHolder和网格合并时就是这样查的
+     */
+    @Benchmark
+    public int viewTypesLookup() {
+        int sum = 0;
+        for (Object item : mData) {
+            int viewType = mViewTypes.getItemViewType(item);
+            sum += mViewTypes.getLayoutIdForViewType(viewType);
+            if (mViewTypes.isSpan(viewType)) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 数据变了之后从头往下滚动，每个位置只算一次
+     */
+    @Benchmark
+    public int spanGroupsSequential() {
+        mSpanCache.invalidate();
+        int last = 0;
+        for (int i = 0; i < size; i++) {
+            last = mSpanCache.getSpanGroupIndex(i, SPAN_COUNT);
+        }
+        return last;
+    }
+
+    /**
+     * 数据变了之后直接跳到末尾，看最坏情况
+     */
+    @Benchmark
+    public int spanGroupJumpToEnd() {
+        mSpanCache.invalidate();
+        return mSpanCache.getSpanGroupIndex(size - 1, SPAN_COUNT);
+    }
+
+    static class Header {
+    }
+
+    static class Text {
+    }
+
+    static class Image {
+    }
+
+    /**
+     * 原来的写法：每次都用instanceof判断
+     */
+    static class InstanceOfSupport implements QuickMultiSupport<Object> {
+        @Override
+        public int getViewTypeCount() {
+            return 3;
+        }
+
+        @Override
+        public int getLayoutId(Object data) {
+            return 100 + getItemViewType(data);
+        }
+
+        @Override
+        public int getItemViewType(Object data) {
+            if (data instanceof Header) {
+                return 1;
+            } else if (data instanceof Text) {
+                return 2;
+            }
+            return 3;
+        }
+
+        @Override
+        public boolean isSpan(Object data) {
+            return data instanceof Header;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.wen.commadapter.core;
+
+import java.util.Arrays;
+
+/**
+ * 记录控件每个属性最后一次设置的值，key是long，不用装箱
+ */
+
+public final class QuickBindCache {
+    private long[] mKeys = new long[8];
+    private int[] mInts = new int[8];
+    private Object[] mObjects = new Object[8];
+    private int mSize;
+
+    /**
+     * 控件ID和属性合成key
+     */
+    public static long key(int viewId, int property) {
+        return ((long) viewId << 32) | (property & 0xffffffffL);
+    }
+
+    /**
+     * 保存int值
+     *
+     * @return 值有变化返回true
+     */
+    public boolean putInt(long key, int value) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index >= 0) {
+            if (mObjects[index] == null && mInts[index] == value) {
+                return false;
+            }
+            mInts[index] = value;
+            mObjects[index] = null;
+            return true;
+        }
+        insert(~index, key, value, null);
+        return true;
+    }
+
+    /**
+     * 保存对象，用equals比较，只能放不可变的对象
+     *
+     * @return 值有变化返回true
+     */
+    public boolean putObject(long key, Object value) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index >= 0) {
+            if (value.equals(mObjects[index])) {
+                return false;
+            }
+            mObjects[index] = value;
+            return true;
+        }
+        insert(~index, key, 0, value);
+        return true;
+    }
+
+    public void remove(long key) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index >= 0) {
+            System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+            System.arraycopy(mInts, index + 1, mInts, index, mSize - index - 1);
+            System.arraycopy(mObjects, index + 1, mObjects, index, mSize - index - 1);
+            mSize--;
+            mObjects[mSize] = null;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mObjects, 0, mSize, null);
+        mSize = 0;
+    }
+
+    private void insert(int index, long key, int intValue, Object objValue) {
+        if (mSize == mKeys.length) {
+            int capacity = mSize * 2;
+            mKeys = Arrays.copyOf(mKeys, capacity);
+            mInts = Arrays.copyOf(mInts, capacity);
+            mObjects = Arrays.copyOf(mObjects, capacity);
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mInts, index, mInts, index + 1, mSize - index);
+        System.arraycopy(mObjects, index, mObjects, index + 1, mSize - index);
+        mKeys[index] = key;
+        mInts[index] = intValue;
+        mObjects[index] = objValue;
+        mSize++;
+    }
+}
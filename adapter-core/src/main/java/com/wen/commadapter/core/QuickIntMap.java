@@ -0,0 +1,72 @@
+package com.wen.commadapter.core;
+
+import java.util.Arrays;
+
+/**
+ * int到int的映射，key有序存放，用法和SparseIntArray一样，
+ * 不依赖Android，可以在JVM上直接跑
+ */
+
+public final class QuickIntMap {
+    private int[] mKeys = new int[8];
+    private int[] mValues = new int[8];
+    private int mSize;
+
+    /**
+     * key对应的值，没有返回valueIfKeyNotFound
+     */
+    public int get(int key, int valueIfKeyNotFound) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        return index < 0 ? valueIfKeyNotFound : mValues[index];
+    }
+
+    public void put(int key, int value) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index >= 0) {
+            mValues[index] = value;
+            return;
+        }
+        index = ~index;
+        if (mSize == mKeys.length) {
+            int capacity = mSize * 2;
+            mKeys = Arrays.copyOf(mKeys, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mKeys[index] = key;
+        mValues[index] = value;
+        mSize++;
+    }
+
+    /**
+     * key的下标，没有返回负数
+     */
+    public int indexOfKey(int key) {
+        return Arrays.binarySearch(mKeys, 0, mSize, key);
+    }
+
+    /**
+     * 小于key的最后一个下标，没有返回-1
+     */
+    public int lowerIndex(int key) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        return index >= 0 ? index - 1 : ~index - 1;
+    }
+
+    public int keyAt(int index) {
+        return mKeys[index];
+    }
+
+    public int valueAt(int index) {
+        return mValues[index];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+}
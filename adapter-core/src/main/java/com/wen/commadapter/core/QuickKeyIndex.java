@@ -0,0 +1,275 @@
+package com.wen.commadapter.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * key到位置的索引，同一个key的ItemId一直不变。
+ * key集合随增删直接更新，contains和getId不用关心位置；
+ * 插入、移除引起的位置变化先记下来，查位置时再把这个key的位置推算到最新，
+ * 记录太多时才按数据整体对一遍位置，已有的key不重新分配
+ */
+
+public final class QuickKeyIndex<T> {
+    // 最多记这么多次位置变化
+    private static final int MAX_EDITS = 64;
+    private static final int EDIT_INSERT = 0;
+    private static final int EDIT_REMOVE = 1;
+
+    private final QuickKeyProvider<T> mProvider;
+    private final HashMap<Object, Slot> mSlots = new HashMap<>();
+    private long mNextId;
+    // 位置变化的记录，第i条的序号是mEditBase + i
+    private final int[] mEditTypes = new int[MAX_EDITS];
+    private final int[] mEditPositions = new int[MAX_EDITS];
+    private final int[] mEditCounts = new int[MAX_EDITS];
+    private int mEditBase;
+    private int mEditCount;
+    // key集合和数据对不上了，例如整体换了数据，要整体对一遍
+    private boolean mDirty = true;
+    // 记录满了，位置要整体对一遍，key集合还是对的
+    private boolean mPositionsStale;
+    // 数据里有重复的key，增删时没法只改一个，退回整体对一遍
+    private boolean mHasDuplicates;
+    // 整体对一遍时标记见过的key
+    private int mMark;
+
+    public QuickKeyIndex(QuickKeyProvider<T> provider) {
+        this.mProvider = provider;
+    }
+
+    public Object keyOf(T item) {
+        return mProvider.getKey(item);
+    }
+
+    /**
+     * 是否有这个key，不需要位置
+     */
+    public boolean contains(List<T> data, Object key) {
+        ensureKeys(data);
+        return mSlots.containsKey(key);
+    }
+
+    /**
+     * key对应的位置，没有返回-1
+     */
+    public int indexOf(List<T> data, Object key) {
+        ensureKeys(data);
+        Slot slot = mSlots.get(key);
+        if (slot == null) {
+            return -1;
+        }
+        ensurePositions(data);
+        return resolve(slot);
+    }
+
+    /**
+     * 位置对应的稳定ID，不需要位置索引
+     */
+    public long getId(List<T> data, int position) {
+        ensureKeys(data);
+        Slot slot = mSlots.get(keyOf(data.get(position)));
+        return slot == null ? position : slot.id;
+    }
+
+    /**
+     * 插入了条目
+     *
+     * @param data 插入之后的数据
+     */
+    public void onInserted(List<T> data, int position, int count) {
+        if (mDirty) {
+            return;
+        }
+        if (mHasDuplicates) {
+            mDirty = true;
+            return;
+        }
+        if (position + count != data.size()) {
+            // 后面的条目位置都变了
+            record(EDIT_INSERT, position, count);
+        }
+        int seq = sequence();
+        for (int i = position; i < position + count; i++) {
+            Object key = keyOf(data.get(i));
+            if (mSlots.containsKey(key)) {
+                // key重复了，以前面的为准，整体对一遍
+                mDirty = true;
+                return;
+            }
+            mSlots.put(key, new Slot(i, seq, mNextId++));
+        }
+    }
+
+    /**
+     * 移除了条目
+     *
+     * @param oldData 移除之前的数据
+     */
+    public void onRemoved(List<T> oldData, int position, int count) {
+        if (mDirty) {
+            return;
+        }
+        if (mHasDuplicates) {
+            mDirty = true;
+            return;
+        }
+        for (int i = position; i < position + count; i++) {
+            mSlots.remove(keyOf(oldData.get(i)));
+        }
+        if (position + count != oldData.size()) {
+            record(EDIT_REMOVE, position, count);
+        }
+    }
+
+    /**
+     * 替换了某个位置的条目
+     */
+    public void onReplaced(int position, T oldItem, T newItem) {
+        if (mDirty) {
+            return;
+        }
+        Object oldKey = keyOf(oldItem);
+        Object newKey = keyOf(newItem);
+        if (oldKey == null ? newKey == null : oldKey.equals(newKey)) {
+            return;
+        }
+        if (mHasDuplicates || mSlots.containsKey(newKey)) {
+            // key重复了，整体对一遍时以前面的为准
+            mDirty = true;
+            return;
+        }
+        mSlots.remove(oldKey);
+        mSlots.put(newKey, new Slot(position, sequence(), mNextId++));
+    }
+
+    /**
+     * 数据整体换了或者按中间状态分发的变化，下次查找时整体对一遍
+     */
+    public void invalidate() {
+        mDirty = true;
+    }
+
+    private int sequence() {
+        return mEditBase + mEditCount;
+    }
+
+    private void record(int type, int position, int count) {
+        if (mPositionsStale) {
+            return;
+        }
+        if (mEditCount == MAX_EDITS) {
+            mPositionsStale = true;
+            return;
+        }
+        mEditTypes[mEditCount] = type;
+        mEditPositions[mEditCount] = position;
+        mEditCounts[mEditCount] = count;
+        mEditCount++;
+    }
+
+    /**
+     * 把key的位置按之后的变化推算到最新
+     */
+    private int resolve(Slot slot) {
+        int position = slot.position;
+        for (int i = slot.stamp - mEditBase; i < mEditCount; i++) {
+            int start = mEditPositions[i];
+            int count = mEditCounts[i];
+            if (mEditTypes[i] == EDIT_INSERT) {
+                if (position >= start) {
+                    position += count;
+                }
+            } else if (position >= start + count) {
+                position -= count;
+            }
+        }
+        slot.position = position;
+        slot.stamp = sequence();
+        return position;
+    }
+
+    /**
+     * 清空位置变化的记录，之后所有key的位置都要是最新的
+     */
+    private void resetEdits() {
+        mEditBase += mEditCount;
+        mEditCount = 0;
+        mPositionsStale = false;
+    }
+
+    /**
+     * 按数据对一遍key集合和位置，已有的key保留原来的ID，不重新分配
+     */
+    private void ensureKeys(List<T> data) {
+        if (!mDirty) {
+            return;
+        }
+        resetEdits();
+        int mark = ++mMark;
+        int seq = sequence();
+        boolean duplicates = false;
+        int position = 0;
+        for (T item : data) {
+            Object key = keyOf(item);
+            Slot slot = mSlots.get(key);
+            if (slot == null) {
+                slot = new Slot(position, seq, mNextId++);
+                slot.mark = mark;
+                mSlots.put(key, slot);
+            } else if (slot.mark != mark) {
+                slot.position = position;
+                slot.stamp = seq;
+                slot.mark = mark;
+            } else {
+                duplicates = true;
+            }
+            position++;
+        }
+        Iterator<Slot> iterator = mSlots.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mark != mark) {
+                iterator.remove();
+            }
+        }
+        mHasDuplicates = duplicates;
+        mDirty = false;
+    }
+
+    /**
+     * 位置变化记录满了，按数据对一遍位置，key集合不变
+     */
+    private void ensurePositions(List<T> data) {
+        if (!mPositionsStale) {
+            return;
+        }
+        resetEdits();
+        int mark = ++mMark;
+        int seq = sequence();
+        int position = 0;
+        for (T item : data) {
+            Slot slot = mSlots.get(keyOf(item));
+            if (slot != null && slot.mark != mark) {
+                slot.position = position;
+                slot.stamp = seq;
+                slot.mark = mark;
+            }
+            position++;
+        }
+    }
+
+    private static class Slot {
+        int position;
+        // position对应的变化记录序号
+        int stamp;
+        int mark;
+        final long id;
+
+        Slot(int position, int stamp, long id) {
+            this.position = position;
+            this.stamp = stamp;
+            this.id = id;
+        }
+    }
+}
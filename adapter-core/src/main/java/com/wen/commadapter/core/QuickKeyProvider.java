@@ -0,0 +1,12 @@
+package com.wen.commadapter.core;
+
+/**
+ * 获取条目的唯一标识，用来快速查找条目和生成稳定的ItemId
+ */
+
+public interface QuickKeyProvider<T> {
+    /**
+     * 条目的key，要正确实现equals和hashCode，不同条目的key不能相同
+     */
+    Object getKey(T item);
+}
@@ -0,0 +1,307 @@
+package com.wen.commadapter.core;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 不可变的数据快照，多个Adapter可以放心共用同一个。
+ * 内部是按位置排序的平衡树，修改时只复制一条路径，旧的快照不受影响，
+ * 复制的开销和改动的大小有关，和数据总数无关
+ */
+
+public final class QuickSnapshot<T> extends AbstractList<T> {
+    private static final QuickSnapshot<Object> EMPTY = new QuickSnapshot<>(null);
+    private final Node<T> mRoot;
+
+    private QuickSnapshot(Node<T> root) {
+        this.mRoot = root;
+    }
+
+    /**
+     * 空的快照
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> QuickSnapshot<T> empty() {
+        return (QuickSnapshot<T>) EMPTY;
+    }
+
+    /**
+     * 生成快照，本身就是快照的话直接返回，不复制。快照不可修改，当作父类型的快照用是安全的
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> QuickSnapshot<T> copyOf(Collection<? extends T> data) {
+        if (data instanceof QuickSnapshot) {
+            return (QuickSnapshot<T>) data;
+        }
+        if (data == null || data.isEmpty()) {
+            return empty();
+        }
+        Object[] items = data.toArray();
+        return new QuickSnapshot<>(QuickSnapshot.<T>build(items, 0, items.length));
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index, size());
+        Node<T> node = mRoot;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(mRoot);
+    }
+
+    /**
+     * 替换index位置的数据
+     */
+    public QuickSnapshot<T> with(int index, T value) {
+        checkIndex(index, size());
+        return new QuickSnapshot<>(set(mRoot, index, value));
+    }
+
+    /**
+     * 在index位置插入数据
+     */
+    public QuickSnapshot<T> plus(int index, T value) {
+        checkIndex(index, size() + 1);
+        return new QuickSnapshot<>(insert(mRoot, index, value));
+    }
+
+    /**
+     * 在最后添加数据
+     */
+    public QuickSnapshot<T> plus(T value) {
+        return plus(size(), value);
+    }
+
+    /**
+     * 在最后添加多条数据
+     */
+    public QuickSnapshot<T> plusAll(Collection<? extends T> data) {
+        if (data == null || data.isEmpty()) {
+            return this;
+        }
+        QuickSnapshot<T> tail = copyOf(data);
+        return new QuickSnapshot<>(concat(mRoot, tail.mRoot));
+    }
+
+    /**
+     * 移除index位置的数据
+     */
+    public QuickSnapshot<T> minus(int index) {
+        checkIndex(index, size());
+        return new QuickSnapshot<>(remove(mRoot, index));
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        int index = 0;
+        for (T value : this) {
+            if (o == null ? value == null : o.equals(value)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr<>(mRoot);
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    //==========================================平衡树================================================
+
+    private static final class Node<T> {
+        final Node<T> left;
+        final T value;
+        final Node<T> right;
+        final int size;
+        final int height;
+
+        Node(Node<T> left, T value, Node<T> right) {
+            this.left = left;
+            this.value = value;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T> build(Object[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(QuickSnapshot.<T>build(items, from, mid), (T) items[mid], QuickSnapshot.<T>build(items, mid + 1, to));
+    }
+
+    private static <T> Node<T> set(Node<T> node, int index, T value) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node<>(set(node.left, index, value), node.value, node.right);
+        } else if (index == leftSize) {
+            return new Node<>(node.left, value, node.right);
+        }
+        return new Node<>(node.left, node.value, set(node.right, index - leftSize - 1, value));
+    }
+
+    private static <T> Node<T> insert(Node<T> node, int index, T value) {
+        if (node == null) {
+            return new Node<>(null, value, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(insert(node.left, index, value), node.value, node.right);
+        }
+        return balance(node.left, node.value, insert(node.right, index - leftSize - 1, value));
+    }
+
+    private static <T> Node<T> remove(Node<T> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(remove(node.left, index), node.value, node.right);
+        } else if (index > leftSize) {
+            return balance(node.left, node.value, remove(node.right, index - leftSize - 1));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        return balance(node.left, first(node.right), removeFirst(node.right));
+    }
+
+    private static <T> T first(Node<T> node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    private static <T> Node<T> removeFirst(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(removeFirst(node.left), node.value, node.right);
+    }
+
+    /**
+     * 连接两棵树，复杂度是两棵树高度差
+     */
+    private static <T> Node<T> concat(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return join(left, first(right), removeFirst(right));
+    }
+
+    private static <T> Node<T> join(Node<T> left, T value, Node<T> right) {
+        int hl = height(left);
+        int hr = height(right);
+        if (hl > hr + 1) {
+            return balance(left.left, left.value, join(left.right, value, right));
+        }
+        if (hr > hl + 1) {
+            return balance(join(left, value, right.left), right.value, right.right);
+        }
+        return new Node<>(left, value, right);
+    }
+
+    /**
+     * 左右高度差不超过2时，旋转恢复平衡
+     */
+    private static <T> Node<T> balance(Node<T> left, T value, Node<T> right) {
+        int hl = height(left);
+        int hr = height(right);
+        if (hl > hr + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.left, left.value, new Node<>(left.right, value, right));
+            }
+            Node<T> lr = left.right;
+            return new Node<>(new Node<>(left.left, left.value, lr.left), lr.value, new Node<>(lr.right, value, right));
+        }
+        if (hr > hl + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(new Node<>(left, value, right.left), right.value, right.right);
+            }
+            Node<T> rl = right.left;
+            return new Node<>(new Node<>(left, value, rl.left), rl.value, new Node<>(rl.right, right.value, right.right));
+        }
+        return new Node<>(left, value, right);
+    }
+
+    /**
+     * 中序遍历，不用每次从根节点查找
+     */
+    private static final class Itr<T> implements Iterator<T> {
+        private final Node<T>[] mStack;
+        private int mDepth;
+
+        @SuppressWarnings("unchecked")
+        Itr(Node<T> root) {
+            mStack = (Node<T>[]) new Node<?>[height(root) + 1];
+            pushLeft(root);
+        }
+
+        private void pushLeft(Node<T> node) {
+            while (node != null) {
+                mStack[mDepth++] = node;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mDepth > 0;
+        }
+
+        @Override
+        public T next() {
+            if (mDepth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = mStack[--mDepth];
+            mStack[mDepth] = null;
+            pushLeft(node.right);
+            return node.value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.wen.commadapter.core;
+
+/**
+ * 网格的行号缓存：记下算过的位置所在的列和行，
+ * 下次从前面最近的缓存位置接着算，不用每次从0开始
+ */
+
+public final class QuickSpanCache {
+    private final SpanSizer mSizer;
+    // 位置对应的列和行
+    private final QuickIntMap mSpanIndexes = new QuickIntMap();
+    private final QuickIntMap mGroupIndexes = new QuickIntMap();
+
+    /**
+     * 每个位置占几列
+     */
+    public interface SpanSizer {
+        int getSpanSize(int position);
+    }
+
+    public QuickSpanCache(SpanSizer sizer) {
+        this.mSizer = sizer;
+    }
+
+    /**
+     * 位置所在的行
+     */
+    public int getSpanGroupIndex(int position, int spanCount) {
+        int cached = mGroupIndexes.get(position, -1);
+        if (cached >= 0) {
+            return cached;
+        }
+        // 从前面最近的缓存位置开始算
+        int start = 0;
+        int span = 0;
+        int group = 0;
+        int index = mGroupIndexes.lowerIndex(position);
+        if (index >= 0) {
+            int reference = mGroupIndexes.keyAt(index);
+            start = reference + 1;
+            span = mSpanIndexes.get(reference, 0) + mSizer.getSpanSize(reference);
+            group = mGroupIndexes.valueAt(index);
+        }
+        for (int i = start; i <= position; i++) {
+            int size = mSizer.getSpanSize(i);
+            if (span + size > spanCount) {
+                span = 0;
+                group++;
+            }
+            if (i == position) {
+                mSpanIndexes.put(i, span);
+                mGroupIndexes.put(i, group);
+                return group;
+            }
+            span += size;
+        }
+        return group;
+    }
+
+    /**
+     * 数据或者列数变了要清空
+     */
+    public void invalidate() {
+        mSpanIndexes.clear();
+        mGroupIndexes.clear();
+    }
+}
@@ -0,0 +1,174 @@
+package com.wen.commadapter.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量修改数据时的变化记录，相邻、重叠的范围会合并，提交时用最少的通知刷新
+ */
+
+public final class QuickUpdateLog {
+    static final int TYPE_INSERT = 1;
+    static final int TYPE_REMOVE = 2;
+    static final int TYPE_CHANGE = 3;
+    static final int TYPE_MOVE = 4;
+
+    private final List<Op> mOps = new ArrayList<>();
+    // 需要整体刷新，其它记录都没有意义了
+    private boolean mInvalidated;
+
+    /**
+     * 接收合并后的变化
+     */
+    public interface Receiver {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count, Object payload);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onInvalidated();
+    }
+
+    public void insert(int position, int count) {
+        if (mInvalidated || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last != null && last.type == TYPE_INSERT
+                && position >= last.position && position <= last.position + last.count) {
+            // 连续插入，或者插入到刚插入的范围里面
+            last.count += count;
+            return;
+        }
+        mOps.add(new Op(TYPE_INSERT, position, count));
+    }
+
+    public void remove(int position, int count) {
+        if (mInvalidated || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last != null) {
+            if (last.type == TYPE_REMOVE
+                    && last.position >= position && last.position <= position + count) {
+                // 同一个位置连续移除，或者从后往前移除
+                last.position = position;
+                last.count += count;
+                return;
+            }
+            if (last.type == TYPE_INSERT
+                    && position >= last.position && position + count <= last.position + last.count) {
+                // 移除的是刚插入的条目，相当于少插入几个
+                last.count -= count;
+                if (last.count == 0) {
+                    mOps.remove(mOps.size() - 1);
+                }
+                return;
+            }
+        }
+        mOps.add(new Op(TYPE_REMOVE, position, count));
+    }
+
+    public void change(int position, int count, Object payload) {
+        if (mInvalidated || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last != null) {
+            if (last.type == TYPE_CHANGE && samePayload(last.payload, payload)
+                    && position <= last.position + last.count && position + count >= last.position) {
+                // 相邻或者重叠的范围合并
+                int end = Math.max(last.position + last.count, position + count);
+                last.position = Math.min(last.position, position);
+                last.count = end - last.position;
+                return;
+            }
+            if (last.type == TYPE_INSERT
+                    && position >= last.position && position + count <= last.position + last.count) {
+                // 刚插入的条目本来就要绑定
+                return;
+            }
+        }
+        Op op = new Op(TYPE_CHANGE, position, count);
+        op.payload = payload;
+        mOps.add(op);
+    }
+
+    public void move(int fromPosition, int toPosition) {
+        if (mInvalidated || fromPosition == toPosition) {
+            return;
+        }
+        mOps.add(new Op(TYPE_MOVE, fromPosition, toPosition));
+    }
+
+    /**
+     * 整体刷新
+     */
+    public void invalidate() {
+        mInvalidated = true;
+        mOps.clear();
+    }
+
+    public boolean isEmpty() {
+        return !mInvalidated && mOps.isEmpty();
+    }
+
+    /**
+     * 按顺序分发合并后的变化，然后清空记录
+     */
+    public void dispatchTo(Receiver receiver) {
+        if (mInvalidated) {
+            receiver.onInvalidated();
+        } else {
+            for (int i = 0, size = mOps.size(); i < size; i++) {
+                Op op = mOps.get(i);
+                switch (op.type) {
+                    case TYPE_INSERT:
+                        receiver.onInserted(op.position, op.count);
+                        break;
+                    case TYPE_REMOVE:
+                        receiver.onRemoved(op.position, op.count);
+                        break;
+                    case TYPE_CHANGE:
+                        receiver.onChanged(op.position, op.count, op.payload);
+                        break;
+                    case TYPE_MOVE:
+                        // 移动时count就是目标位置
+                        receiver.onMoved(op.position, op.count);
+                        break;
+                }
+            }
+        }
+        clear();
+    }
+
+    public void clear() {
+        mInvalidated = false;
+        mOps.clear();
+    }
+
+    private static boolean samePayload(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private Op last() {
+        return mOps.isEmpty() ? null : mOps.get(mOps.size() - 1);
+    }
+
+    private static class Op {
+        final int type;
+        int position;
+        int count;
+        // 局部刷新的数据，只有改变才有
+        Object payload;
+
+        Op(int type, int position, int count) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+        }
+    }
+}
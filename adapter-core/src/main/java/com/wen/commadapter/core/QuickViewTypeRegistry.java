@@ -0,0 +1,151 @@
+package com.wen.commadapter.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * 多条目注册表：数据类型或者条件对应(viewType, 布局ID, 是否合并)，
+ * 按数据的Class缓存查找结果，代替一串instanceof判断
+ */
+
+public class QuickViewTypeRegistry<T> implements QuickMultiSupport<T> {
+    // 注册的Class，按注册顺序匹配
+    private final List<Class<?>> mClasses = new ArrayList<>();
+    private final List<Entry> mClassEntries = new ArrayList<>();
+    // 数据的Class对应的查找结果，子类也会缓存
+    private final IdentityHashMap<Class<?>, Entry> mClassCache = new IdentityHashMap<>();
+    // 注册的条件，Class都匹配不上时才按顺序判断
+    private final List<Matcher<T>> mMatchers = new ArrayList<>();
+    private final List<Entry> mMatcherEntries = new ArrayList<>();
+    // viewType对应的注册信息，存的是mEntries的下标
+    private final QuickIntMap mTypeEntries = new QuickIntMap();
+    private final List<Entry> mEntries = new ArrayList<>();
+
+    /**
+     * 判断数据是否属于某种条目
+     */
+    public interface Matcher<T> {
+        boolean matches(T data);
+    }
+
+    /**
+     * 注册数据类型，子类也会匹配
+     */
+    public QuickViewTypeRegistry<T> register(Class<? extends T> cls, int viewType, int layoutId, boolean spanFull) {
+        Entry entry = obtainEntry(viewType, layoutId, spanFull);
+        mClasses.add(cls);
+        mClassEntries.add(entry);
+        mClassCache.clear();
+        return this;
+    }
+
+    public QuickViewTypeRegistry<T> register(Class<? extends T> cls, int viewType, int layoutId) {
+        return register(cls, viewType, layoutId, false);
+    }
+
+    /**
+     * 注册条件，条件的结果和数据有关，不会缓存
+     */
+    public QuickViewTypeRegistry<T> register(Matcher<T> matcher, int viewType, int layoutId, boolean spanFull) {
+        Entry entry = obtainEntry(viewType, layoutId, spanFull);
+        mMatchers.add(matcher);
+        mMatcherEntries.add(entry);
+        return this;
+    }
+
+    public QuickViewTypeRegistry<T> register(Matcher<T> matcher, int viewType, int layoutId) {
+        return register(matcher, viewType, layoutId, false);
+    }
+
+    private Entry obtainEntry(int viewType, int layoutId, boolean spanFull) {
+        Entry entry = getEntry(viewType);
+        if (entry == null) {
+            entry = new Entry(viewType, layoutId, spanFull);
+            mTypeEntries.put(viewType, mEntries.size());
+            mEntries.add(entry);
+        } else if (entry.layoutId != layoutId || entry.spanFull != spanFull) {
+            throw new IllegalArgumentException("viewType " + viewType + " is already registered with another layout");
+        }
+        return entry;
+    }
+
+    private Entry getEntry(int viewType) {
+        int index = mTypeEntries.get(viewType, -1);
+        return index < 0 ? null : mEntries.get(index);
+    }
+
+    /**
+     * 查找数据对应的注册信息
+     */
+    private Entry resolve(T data) {
+        if (data != null) {
+            Class<?> cls = data.getClass();
+            Entry entry = mClassCache.get(cls);
+            if (entry != null) {
+                return entry;
+            }
+            for (int i = 0, size = mClasses.size(); i < size; i++) {
+                if (mClasses.get(i).isAssignableFrom(cls)) {
+                    entry = mClassEntries.get(i);
+                    mClassCache.put(cls, entry);
+                    return entry;
+                }
+            }
+        }
+        for (int i = 0, size = mMatchers.size(); i < size; i++) {
+            if (mMatchers.get(i).matches(data)) {
+                return mMatcherEntries.get(i);
+            }
+        }
+        throw new IllegalArgumentException("No view type registered for " + data);
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mTypeEntries.size();
+    }
+
+    @Override
+    public int getLayoutId(T data) {
+        return resolve(data).layoutId;
+    }
+
+    @Override
+    public int getItemViewType(T data) {
+        return resolve(data).viewType;
+    }
+
+    @Override
+    public boolean isSpan(T data) {
+        return resolve(data).spanFull;
+    }
+
+    /**
+     * viewType对应的布局ID，没有注册返回0
+     */
+    public int getLayoutIdForViewType(int viewType) {
+        Entry entry = getEntry(viewType);
+        return entry == null ? 0 : entry.layoutId;
+    }
+
+    /**
+     * viewType是否合并条目
+     */
+    public boolean isSpanForViewType(int viewType) {
+        Entry entry = getEntry(viewType);
+        return entry != null && entry.spanFull;
+    }
+
+    private static class Entry {
+        final int viewType;
+        final int layoutId;
+        final boolean spanFull;
+
+        Entry(int viewType, int layoutId, boolean spanFull) {
+            this.viewType = viewType;
+            this.layoutId = layoutId;
+            this.spanFull = spanFull;
+        }
+    }
+}
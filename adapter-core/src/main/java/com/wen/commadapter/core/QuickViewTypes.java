@@ -0,0 +1,92 @@
+package com.wen.commadapter.core;
+
+/**
+ * 多条目viewType的记录：每种viewType第一次出现时记下布局和是否合并条目，
+ * 之后按viewType直接查，不用再拿数据去问QuickMultiSupport
+ */
+
+public final class QuickViewTypes<T> {
+    /**
+     * 超出上限的viewType，和AdapterView.ITEM_VIEW_TYPE_IGNORE一样，ListView不复用这种条目
+     */
+    public static final int IGNORE_VIEW_TYPE = -1;
+
+    private final QuickMultiSupport<T> mSupport;
+    // 多条目是注册表时，viewType可以直接查到布局
+    private final QuickViewTypeRegistry<T> mRegistry;
+    // 普通多条目时，记下的viewType对应的布局ID
+    private final QuickIntMap mLayouts = new QuickIntMap();
+    // viewType是否合并条目，1合并 0不合并
+    private final QuickIntMap mSpans = new QuickIntMap();
+    // ListView的viewType必须在[0, getViewTypeCount())之间，把多条目的viewType映射成连续的下标
+    private final QuickIntMap mDenseTypes = new QuickIntMap();
+
+    public QuickViewTypes(QuickMultiSupport<T> support) {
+        this.mSupport = support;
+        this.mRegistry = support instanceof QuickViewTypeRegistry ? (QuickViewTypeRegistry<T>) support : null;
+    }
+
+    /**
+     * 数据对应的viewType，同时记下布局和是否合并条目
+     */
+    public int getItemViewType(T data) {
+        int viewType = mSupport.getItemViewType(data);
+        if (mRegistry == null && mLayouts.indexOfKey(viewType) < 0) {
+            mLayouts.put(viewType, mSupport.getLayoutId(data));
+        }
+        recordSpan(viewType, data);
+        return viewType;
+    }
+
+    /**
+     * 数据对应的布局ID
+     */
+    public int getLayoutId(T data) {
+        return mSupport.getLayoutId(data);
+    }
+
+    /**
+     * viewType第一次出现时记下是否合并条目
+     */
+    public void recordSpan(int viewType, T data) {
+        if (mSpans.indexOfKey(viewType) < 0) {
+            mSpans.put(viewType, mSupport.isSpan(data) ? 1 : 0);
+        }
+    }
+
+    /**
+     * viewType是否合并条目，没出现过的当作不合并
+     */
+    public boolean isSpan(int viewType) {
+        return mSpans.get(viewType, 0) != 0;
+    }
+
+    /**
+     * viewType对应的布局ID，还没出现过返回0
+     */
+    public int getLayoutIdForViewType(int viewType) {
+        if (mRegistry != null) {
+            return mRegistry.getLayoutIdForViewType(viewType);
+        }
+        return mLayouts.get(viewType, 0);
+    }
+
+    /**
+     * ListView使用的连续viewType，第一次出现时分配下标。
+     * QuickMultiSupport少报了数量时不抛异常，超出的返回{@link #IGNORE_VIEW_TYPE}
+     *
+     * @param viewTypeCount 下标的上限
+     */
+    public int getDenseViewType(int viewType, int viewTypeCount) {
+        int index = mDenseTypes.indexOfKey(viewType);
+        if (index >= 0) {
+            return mDenseTypes.valueAt(index);
+        }
+        int dense = mDenseTypes.size();
+        if (dense >= viewTypeCount) {
+            return IGNORE_VIEW_TYPE;
+        }
+        mDenseTypes.put(viewType, dense);
+        return dense;
+    }
+}
@@ -0,0 +1,51 @@
+package com.wen.commadapter.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 有序int映射的查找和扩容
+ */
+
+public class QuickIntMapTest {
+
+    @Test
+    public void putKeepsKeysSorted() {
+        QuickIntMap map = new QuickIntMap();
+        for (int i = 99; i >= 0; i--) {
+            map.put(i * 2, i);
+        }
+        map.put(10, -1);
+        assertEquals(100, map.size());
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(i * 2, map.keyAt(i));
+        }
+        assertEquals(-1, map.get(10, 0));
+        assertEquals(7, map.get(14, 0));
+        assertEquals(-5, map.get(15, -5));
+    }
+
+    @Test
+    public void lowerIndex() {
+        QuickIntMap map = new QuickIntMap();
+        map.put(10, 1);
+        map.put(20, 2);
+        assertEquals(-1, map.lowerIndex(10));
+        assertEquals(0, map.lowerIndex(15));
+        assertEquals(0, map.lowerIndex(20));
+        assertEquals(1, map.lowerIndex(100));
+        assertTrue(map.indexOfKey(15) < 0);
+        assertEquals(1, map.indexOfKey(20));
+    }
+
+    @Test
+    public void clearEmpties() {
+        QuickIntMap map = new QuickIntMap();
+        map.put(1, 1);
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(1, -1));
+    }
+}
@@ -0,0 +1,124 @@
+package com.wen.commadapter.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * key索引随增删更新，位置和ArrayList.indexOf一致，同一个key的ID不变
+ */
+
+public class QuickKeyIndexTest {
+    private QuickKeyIndex<String> mIndex;
+    private List<String> mData;
+
+    @Before
+    public void setUp() {
+        mIndex = new QuickKeyIndex<>(new QuickKeyProvider<String>() {
+            @Override
+            public Object getKey(String item) {
+                return item;
+            }
+        });
+        mData = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+    }
+
+    private void insert(int position, String item) {
+        mData.add(position, item);
+        mIndex.onInserted(mData, position, 1);
+    }
+
+    private void remove(int position) {
+        List<String> old = new ArrayList<>(mData);
+        mData.remove(position);
+        mIndex.onRemoved(old, position, 1);
+    }
+
+    @Test
+    public void tracksMiddleEdits() {
+        assertEquals(2, mIndex.indexOf(mData, "c"));
+        insert(0, "x");
+        insert(2, "y");
+        remove(1);
+        // x y b c d
+        assertEquals(Arrays.asList("x", "y", "b", "c", "d"), mData);
+        assertEquals(0, mIndex.indexOf(mData, "x"));
+        assertEquals(1, mIndex.indexOf(mData, "y"));
+        assertEquals(3, mIndex.indexOf(mData, "c"));
+        assertEquals(-1, mIndex.indexOf(mData, "a"));
+        assertFalse(mIndex.contains(mData, "a"));
+        assertTrue(mIndex.contains(mData, "d"));
+    }
+
+    @Test
+    public void keepsIdsAcrossEdits() {
+        long idC = mIndex.getId(mData, 2);
+        long idA = mIndex.getId(mData, 0);
+        assertNotEquals(idA, idC);
+        insert(0, "x");
+        remove(1);
+        assertEquals(idC, mIndex.getId(mData, mIndex.indexOf(mData, "c")));
+
+        // 整体换了顺序也保留原来的ID
+        Collections.reverse(mData);
+        mIndex.invalidate();
+        assertEquals(idC, mIndex.getId(mData, mIndex.indexOf(mData, "c")));
+        assertEquals(mData.indexOf("x"), mIndex.indexOf(mData, "x"));
+    }
+
+    @Test
+    public void replaceSwapsKey() {
+        mIndex.indexOf(mData, "a");
+        String old = mData.set(1, "z");
+        mIndex.onReplaced(1, old, "z");
+        assertEquals(1, mIndex.indexOf(mData, "z"));
+        assertFalse(mIndex.contains(mData, "b"));
+    }
+
+    @Test
+    public void duplicateKeysUseFirst() {
+        insert(4, "a");
+        assertEquals(0, mIndex.indexOf(mData, "a"));
+        remove(0);
+        assertEquals(3, mIndex.indexOf(mData, "a"));
+    }
+
+    @Test
+    public void matchesIndexOfUnderRandomEdits() {
+        Random random = new Random(1);
+        Map<String, Long> ids = new HashMap<>();
+        int next = 0;
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(5);
+            if (op == 0 || mData.isEmpty()) {
+                insert(random.nextInt(mData.size() + 1), "n" + next++);
+            } else if (op == 1) {
+                remove(random.nextInt(mData.size()));
+            } else {
+                String key = "n" + random.nextInt(next + 1);
+                assertEquals(mData.indexOf(key), mIndex.indexOf(mData, key));
+                assertEquals(mData.contains(key), mIndex.contains(mData, key));
+            }
+            if (!mData.isEmpty()) {
+                int position = random.nextInt(mData.size());
+                long id = mIndex.getId(mData, position);
+                Long previous = ids.put(mData.get(position), id);
+                if (previous != null) {
+                    assertEquals(previous.longValue(), id);
+                }
+            }
+        }
+    }
+}
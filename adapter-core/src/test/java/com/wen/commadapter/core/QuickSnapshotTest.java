@@ -0,0 +1,78 @@
+package com.wen.commadapter.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 快照的修改返回新快照，旧的不变，结果和ArrayList一样
+ */
+
+public class QuickSnapshotTest {
+
+    @Test
+    public void copyOfSharesSnapshot() {
+        QuickSnapshot<String> snapshot = QuickSnapshot.copyOf(Arrays.asList("a", "b"));
+        assertSame(snapshot, QuickSnapshot.copyOf(snapshot));
+        assertSame(QuickSnapshot.empty(), QuickSnapshot.copyOf(new ArrayList<String>()));
+    }
+
+    @Test
+    public void editsKeepOldSnapshot() {
+        QuickSnapshot<String> snapshot = QuickSnapshot.copyOf(Arrays.asList("a", "b", "c"));
+        QuickSnapshot<String> edited = snapshot.plus(1, "x").minus(0).with(2, "y");
+
+        assertEquals(Arrays.asList("a", "b", "c"), snapshot);
+        assertEquals(Arrays.asList("x", "b", "y"), edited);
+        assertEquals(1, edited.indexOf("b"));
+        assertEquals(-1, edited.indexOf("a"));
+    }
+
+    @Test
+    public void plusAllConcatenates() {
+        QuickSnapshot<Integer> snapshot = QuickSnapshot.copyOf(Arrays.asList(1, 2));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), snapshot.plusAll(Arrays.asList(3, 4, 5)));
+        assertSame(snapshot, snapshot.plusAll(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void matchesArrayList() {
+        Random random = new Random(1);
+        List<Integer> expected = new ArrayList<>();
+        QuickSnapshot<Integer> snapshot = QuickSnapshot.empty();
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(4);
+            if (op == 0 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, step);
+                snapshot = snapshot.plus(index, step);
+            } else if (op == 1) {
+                int index = random.nextInt(expected.size());
+                expected.remove(index);
+                snapshot = snapshot.minus(index);
+            } else if (op == 2) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -step);
+                snapshot = snapshot.with(index, -step);
+            } else {
+                List<Integer> tail = Arrays.asList(step, step + 1);
+                expected.addAll(tail);
+                snapshot = snapshot.plusAll(tail);
+            }
+        }
+        assertEquals(expected.size(), snapshot.size());
+        assertEquals(expected, snapshot);
+        assertEquals(expected, new ArrayList<>(snapshot));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsBadIndex() {
+        QuickSnapshot.copyOf(Arrays.asList("a")).get(1);
+    }
+}
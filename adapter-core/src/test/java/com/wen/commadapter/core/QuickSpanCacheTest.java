@@ -0,0 +1,65 @@
+package com.wen.commadapter.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 行号缓存和从头计算的结果一致，数据变了清空后重新计算
+ */
+
+public class QuickSpanCacheTest {
+    private static final int SPAN_COUNT = 3;
+
+    // 每7个一个占满一行的
+    private int[] mSizes = createSizes(200, 7);
+
+    private static int[] createSizes(int count, int every) {
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = i % every == 0 ? SPAN_COUNT : 1;
+        }
+        return sizes;
+    }
+
+    private final QuickSpanCache mCache = new QuickSpanCache(new QuickSpanCache.SpanSizer() {
+        @Override
+        public int getSpanSize(int position) {
+            return mSizes[position];
+        }
+    });
+
+    private int expectedGroup(int position) {
+        int span = 0;
+        int group = 0;
+        for (int i = 0; i <= position; i++) {
+            if (span + mSizes[i] > SPAN_COUNT) {
+                span = 0;
+                group++;
+            }
+            span += mSizes[i];
+        }
+        return group;
+    }
+
+    @Test
+    public void matchesFullScan() {
+        // 先跳着查，再按顺序查
+        for (int position = mSizes.length - 1; position >= 0; position -= 13) {
+            assertEquals(expectedGroup(position), mCache.getSpanGroupIndex(position, SPAN_COUNT));
+        }
+        for (int position = 0; position < mSizes.length; position++) {
+            assertEquals(expectedGroup(position), mCache.getSpanGroupIndex(position, SPAN_COUNT));
+        }
+    }
+
+    @Test
+    public void invalidateAfterDataChange() {
+        mCache.getSpanGroupIndex(mSizes.length - 1, SPAN_COUNT);
+        mSizes = createSizes(200, 4);
+        mCache.invalidate();
+        for (int position = 0; position < mSizes.length; position++) {
+            assertEquals(expectedGroup(position), mCache.getSpanGroupIndex(position, SPAN_COUNT));
+        }
+    }
+}
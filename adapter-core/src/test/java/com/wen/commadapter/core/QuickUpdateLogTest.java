@@ -0,0 +1,109 @@
+package com.wen.commadapter.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 变化记录的合并规则
+ */
+
+public class QuickUpdateLogTest {
+    private final QuickUpdateLog mLog = new QuickUpdateLog();
+
+    private List<String> dispatch() {
+        final List<String> events = new ArrayList<>();
+        mLog.dispatchTo(new QuickUpdateLog.Receiver() {
+            @Override
+            public void onInserted(int position, int count) {
+                events.add("insert " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                events.add("remove " + position + " " + count);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                events.add("change " + position + " " + count + " " + payload);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                events.add("move " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onInvalidated() {
+                events.add("invalidate");
+            }
+        });
+        return events;
+    }
+
+    @Test
+    public void mergesConsecutiveInserts() {
+        mLog.insert(5, 1);
+        mLog.insert(6, 2);
+        mLog.insert(5, 1);
+        assertEquals(Arrays.asList("insert 5 4"), dispatch());
+        assertTrue(mLog.isEmpty());
+    }
+
+    @Test
+    public void mergesRemovesFromBothSides() {
+        mLog.remove(5, 1);
+        mLog.remove(5, 1);
+        mLog.remove(4, 1);
+        assertEquals(Arrays.asList("remove 4 3"), dispatch());
+    }
+
+    @Test
+    public void removeOfInsertedCancels() {
+        mLog.insert(3, 2);
+        mLog.remove(3, 1);
+        mLog.remove(3, 1);
+        assertTrue(mLog.isEmpty());
+        assertEquals(new ArrayList<String>(), dispatch());
+    }
+
+    @Test
+    public void mergesOverlappingChangesWithSamePayload() {
+        mLog.change(2, 2, "p");
+        mLog.change(4, 1, "p");
+        mLog.change(1, 1, "p");
+        mLog.change(3, 1, "q");
+        assertEquals(Arrays.asList("change 1 4 p", "change 3 1 q"), dispatch());
+    }
+
+    @Test
+    public void changeInsideInsertIsDropped() {
+        mLog.insert(0, 3);
+        mLog.change(1, 1, null);
+        assertEquals(Arrays.asList("insert 0 3"), dispatch());
+    }
+
+    @Test
+    public void invalidateWins() {
+        mLog.insert(0, 1);
+        mLog.invalidate();
+        mLog.remove(0, 1);
+        mLog.move(1, 2);
+        assertEquals(Arrays.asList("invalidate"), dispatch());
+        assertTrue(mLog.isEmpty());
+    }
+
+    @Test
+    public void keepsOrderOfUnrelatedOps() {
+        mLog.insert(0, 1);
+        mLog.move(3, 1);
+        mLog.remove(8, 2);
+        assertEquals(Arrays.asList("insert 0 1", "move 3 1", "remove 8 2"), dispatch());
+    }
+}
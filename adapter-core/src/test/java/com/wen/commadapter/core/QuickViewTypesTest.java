@@ -0,0 +1,50 @@
+package com.wen.commadapter.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ListView的连续viewType按出现顺序分配，超出数量时不抛异常
+ */
+
+public class QuickViewTypesTest {
+    private final QuickViewTypes<Integer> mViewTypes = new QuickViewTypes<>(new QuickMultiSupport<Integer>() {
+        @Override
+        public int getViewTypeCount() {
+            return 2;
+        }
+
+        @Override
+        public int getLayoutId(Integer data) {
+            return 100 + data;
+        }
+
+        @Override
+        public int getItemViewType(Integer data) {
+            return data;
+        }
+
+        @Override
+        public boolean isSpan(Integer data) {
+            return false;
+        }
+    });
+
+    @Test
+    public void denseTypesInOrderOfAppearance() {
+        assertEquals(0, mViewTypes.getDenseViewType(mViewTypes.getItemViewType(7), 2));
+        assertEquals(1, mViewTypes.getDenseViewType(mViewTypes.getItemViewType(3), 2));
+        assertEquals(0, mViewTypes.getDenseViewType(7, 2));
+        assertEquals(107, mViewTypes.getLayoutIdForViewType(7));
+    }
+
+    @Test
+    public void extraTypesAreIgnoredInsteadOfThrowing() {
+        mViewTypes.getDenseViewType(7, 2);
+        mViewTypes.getDenseViewType(3, 2);
+        assertEquals(QuickViewTypes.IGNORE_VIEW_TYPE, mViewTypes.getDenseViewType(5, 2));
+        // 已经分配的不受影响
+        assertEquals(1, mViewTypes.getDenseViewType(3, 2));
+    }
+}
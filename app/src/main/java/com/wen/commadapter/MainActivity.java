@@ -10,11 +10,15 @@ import android.widget.ListView;
 import android.widget.Toast;
 
 import com.wen.commadapter.adapter.QuickAdapter;
-import com.wen.commadapter.adapter.QuickMultiSupport;
+import com.wen.commadapter.adapter.QuickInflatePool;
 import com.wen.commadapter.adapter.QuickViewHolder;
-import com.wen.commadapter.stack.IStick;
+import com.wen.commadapter.core.QuickMultiSupport;
+import com.wen.commadapter.core.QuickSnapshot;
+import com.wen.commadapter.core.QuickViewTypeRegistry;
+import com.wen.commadapter.stack.IStickSections;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
@@ -51,51 +55,42 @@ public class MainActivity extends AppCompatActivity {
                 mData.add(bean);
             }
         }
-        // 多条目支持
-        mQuickSupport = new QuickMultiSupport<IViewType>() {
-            // 条目总共两种类型
-            @Override
-            public int getViewTypeCount() {
-                return 2;
-            }
-
-            // 根据不用的JavaBean返回不同的布局
-            @Override
-            public int getLayoutId(IViewType data) {
-                if (data instanceof MultiBean) {
-                    return R.layout.item_list1;
-                }
-                return R.layout.item_list;
-            }
-
-            @Override
-            public int getItemViewType(IViewType data) {
-                return data.getItemViewType();
-            }
-
-            @Override
-            public boolean isSpan(IViewType data) {
-                // 是否占用一个条目，针对RecyclerView
-                if (data instanceof MultiBean) {
-                    return true;
-                }
-                return false;
-            }
-        };
+        // 多条目支持，不同的JavaBean对应不同的布局，MultiBean占用一整行
+        mQuickSupport = new QuickViewTypeRegistry<IViewType>()
+                .register(MultiBean.class, 1, R.layout.item_list1, true)
+                .register(MultiBean1.class, 2, R.layout.item_list);
     }
 
 
     private void initViews() {
         ListView listView = findViewById(R.id.list_view);
         RecyclerView recyclerView = findViewById(R.id.recycler_view);
+        // 两个Adapter共用同一份不可变快照，不用各自复制
+        QuickSnapshot<IViewType> snapshot = QuickSnapshot.copyOf(mData);
+        // 所有条目共用一个点击监听，convert里不用每次new
+        QuickAdapter.OnItemClickListener<IViewType> onItemClickListener = new QuickAdapter.OnItemClickListener<IViewType>() {
+            @Override
+            public void onItemClick(QuickAdapter<IViewType> adapter, View view, IViewType item, int position) {
+                Toast.makeText(MainActivity.this, item.toString(), Toast.LENGTH_LONG).show();
+            }
+        };
         // ListView设置Adapter
-        listView.setAdapter(new CommAdapter(this, mData, mQuickSupport));
+        CommAdapter listAdapter = new CommAdapter(this, snapshot, mQuickSupport);
+        listAdapter.setOnItemClickListener(onItemClickListener);
+        listView.setAdapter(listAdapter);
         // RecyclerView设置Adapter
         recyclerView.setLayoutManager(new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL));
-        recyclerView.setAdapter(new CommAdapter(this, mData, mQuickSupport));
+        // 后台预加载第一屏的条目
+        QuickInflatePool inflatePool = new QuickInflatePool(this);
+        inflatePool.preInflate(recyclerView, R.layout.item_list, 12);
+        inflatePool.preInflate(recyclerView, R.layout.item_list1, 2);
+        CommAdapter recyclerAdapter = new CommAdapter(this, snapshot, mQuickSupport);
+        recyclerAdapter.setInflatePool(inflatePool);
+        recyclerAdapter.setOnItemClickListener(onItemClickListener);
+        recyclerView.setAdapter(recyclerAdapter);
     }
 
-    class CommAdapter extends QuickAdapter<IViewType> implements IStick {
+    class CommAdapter extends QuickAdapter<IViewType> implements IStickSections {
         public CommAdapter(Context context, List<IViewType> data, int layoutId) {
             super(context, data, layoutId);
         }
@@ -105,28 +100,29 @@ public class MainActivity extends AppCompatActivity {
         }
 
         @Override
-        protected void convert(QuickViewHolder holder, final IViewType item, final int position) {
+        protected void convert(QuickViewHolder holder, IViewType item, int position) {
             holder.setText(R.id.tv, item.toString());
-            holder.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    // 点击移除当前条目
-                    Toast.makeText(MainActivity.this, item.toString(), Toast.LENGTH_LONG).show();
-                }
-            });
         }
 
-        // 下面是悬浮View的测试
-        @Override
-        public int getStickPosition() {
-            // 指定第10个位置要悬浮
-            return 10;
-        }
+        // 下面是悬浮View的测试，每个MultiBean都是一个分组头
+        private int[] mStickPositions;
 
         @Override
-        public int getStickViewType() {
-            // 指定悬浮的条目类型
-            return getItemViewType(getStickPosition());
+        public int[] getStickPositions() {
+            if (mStickPositions == null) {
+                List<IViewType> data = getSnapshot();
+                int count = 0;
+                int position = 0;
+                int[] positions = new int[data.size()];
+                for (IViewType item : data) {
+                    if (item instanceof MultiBean) {
+                        positions[count++] = position;
+                    }
+                    position++;
+                }
+                mStickPositions = Arrays.copyOf(positions, count);
+            }
+            return mStickPositions;
         }
     }
 }
@@ -1,40 +1,125 @@
 package com.wen.commadapter.adapter;
 
 import android.content.Context;
+import android.database.DataSetObserver;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Filter;
+import android.widget.Filterable;
 
 import com.wen.commadapter.R;
+import com.wen.commadapter.core.QuickKeyIndex;
+import com.wen.commadapter.core.QuickKeyProvider;
+import com.wen.commadapter.core.QuickMultiSupport;
+import com.wen.commadapter.core.QuickSnapshot;
+import com.wen.commadapter.core.QuickSpanCache;
+import com.wen.commadapter.core.QuickUpdateLog;
+import com.wen.commadapter.core.QuickViewTypes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * RecyclerView、ListView、GridView通用的适配器
  */
 
-public abstract class QuickAdapter<T> extends BaseAdapter {
+public abstract class QuickAdapter<T> extends BaseAdapter implements Filterable {
+    private static final String TAG = "QuickAdapter";
     private Context mContext;
     private List<T> mData;
     private int mLayoutId;
     private QuickMultiSupport<T> mSupport;
     private boolean isRecycler;
-    private int mPosition;
+    // 注册过ListView的观察者，只有这时viewType才要映射成连续下标
+    private boolean isListView;
+    // viewType超出getViewTypeCount()时只警告一次
+    private boolean mViewTypeWarned;
+    // 多条目的viewType记录，单布局时为null
+    private QuickViewTypes<T> mViewTypes;
+    // submitList的比较器
+    private QuickDiffCallback<T> mDiffCallback;
+    // 最后一次submitList的序号，用来丢弃过期的计算结果
+    private int mMaxScheduledGeneration;
+    // 数据版本，每次修改数据都会加1
+    private int mDataVersion;
+    // 批量修改的记录和嵌套层数
+    private final QuickUpdateLog mUpdateLog = new QuickUpdateLog();
+    private int mUpdateDepth;
+    // 新建的ViewHolder是否开启记忆
+    private boolean mMemoizeEnabled;
+    // 布局预加载池
+    private QuickInflatePool mInflatePool;
+    // 共用的回收池，设置后viewType就是布局ID
+    private QuickRecycledViewPool mSharedPool;
+    // ListView加载布局和复用convertView的次数
+    private int mListInflateCount;
+    private int mListReuseCount;
+    // 分页模式的数据，不是分页模式时为null
+    private QuickPagedList<T> mPagedList;
+    // 条目key的索引，设置QuickKeyProvider后才有
+    private QuickKeyIndex<T> mKeyIndex;
+    // 性能统计，为null时不统计
+    private QuickMetrics mMetrics;
+    // 条目和子控件的点击事件，所有ViewHolder共用一个监听
+    private OnItemClickListener<T> mOnItemClickListener;
+    private OnItemChildClickListener<T> mOnItemChildClickListener;
+    private int[] mChildClickViewIds;
+    // 点击事件的设置变了就换一个标记，ViewHolder绑定时发现标记不一样再重新接上监听
+    private Object mClickWiring = new Object();
+    // viewType对应的文本预排版设置
+    private SparseArray<ArrayList<TextEntry<T>>> mTextEntries;
+    // 已经安排预排版的位置（不含）和当时的数据版本
+    private int mPrecomputeEnd;
+    private int mPrecomputeVersion;
+    private int mLastBindPosition;
+    private static final int PRECOMPUTE_AHEAD = 20;
+    // 等待后台排版的文本，三个列表一一对应，在mPrecomputeQueue上同步；后台读到mPrecomputeRead
+    private final ArrayList<QuickTextSpec> mPrecomputeSpecs = new ArrayList<>();
+    private final ArrayList<Object> mPrecomputeKeys = new ArrayList<>();
+    private final ArrayList<CharSequence> mPrecomputeTexts = new ArrayList<>();
+    private final Object mPrecomputeQueue = new Object();
+    private int mPrecomputeRead;
+    private boolean mPrecomputePosted;
+    // 过滤条件和过滤器
+    private FilterPredicate<T> mFilterPredicate;
+    private boolean mFilterNarrowable;
+    private QuickFilter mFilter;
+    // 过滤前的完整数据，不在过滤时为null
+    private QuickSnapshot<T> mFilterSource;
+    // 当前显示的过滤结果，条件变长时用它缩小范围
+    private FilterResult<T> mFilterResult;
+    private CharSequence mFilterConstraint;
+    // 每次过滤加1，后台发现变了就放弃
+    private final AtomicInteger mFilterGeneration = new AtomicInteger();
+    // 每过滤这么多条检查一次是否作废
+    private static final int FILTER_CHECK_INTERVAL = 256;
 
     public QuickAdapter(Context context, List<T> data, int layoutId) {
         this.mContext = context;
-        this.mData = data == null ? new ArrayList<T>() : new ArrayList<T>(data);
+        // 传入的是快照就直接共用，不复制
+        this.mData = QuickSnapshot.copyOf(data);
         this.mLayoutId = layoutId;
     }
 
     public QuickAdapter(Context context, List<T> data, QuickMultiSupport<T> support) {
         this(context, data, 0);
         this.mSupport = support;
+        this.mViewTypes = new QuickViewTypes<>(support);
     }
 
     @Override
@@ -49,35 +134,73 @@ public abstract class QuickAdapter<T> extends BaseAdapter {
 
     @Override
     public long getItemId(int position) {
+        if (mKeyIndex != null && mPagedList == null) {
+            return mKeyIndex.getId(mData, position);
+        }
         return position;
     }
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        QuickViewHolder holder;
-        if (convertView == null) {
-            int layoutId = mLayoutId;
-            // 多条目的
-            if (mSupport != null) {
-                layoutId = mSupport.getLayoutId(mData.get(position));
+        QuickMetrics metrics = mMetrics;
+        if (metrics == null) {
+            return getView(position, convertView, parent, null, 0);
+        }
+        int viewType = getItemViewType(position);
+        long start = metrics.begin(QuickMetrics.PHASE_GET_VIEW);
+        try {
+            return getView(position, convertView, parent, metrics, viewType);
+        } finally {
+            // convert抛异常也要结束Trace
+            metrics.end(QuickMetrics.PHASE_GET_VIEW, viewType, start);
+        }
+    }
+
+    private View getView(int position, View convertView, ViewGroup parent, QuickMetrics metrics, int viewType) {
+        T item = mData.get(position);
+        int layoutId = resolveLayoutId(item);
+        QuickViewHolder holder = null;
+        if (convertView != null) {
+            holder = (QuickViewHolder) convertView.getTag();
+            // 防止失误，还要判断，如果布局ID不一样，又重新创建
+            if (layoutId != holder.getLayoutId()) {
+                holder = null;
             }
+        }
+        if (holder == null) {
             // 创建ViewHolder
-            holder = createListHolder(parent, layoutId);
-        } else {
-            holder = (QuickViewHolder) convertView.getTag();
-            // 防止失误，还要判断
-            if (mSupport != null) {
-                int layoutId = mSupport.getLayoutId(mData.get(position));
-                // 如果布局ID不一样，又重新创建
-                if (layoutId != holder.getLayoutId()) {
-                    // 创建ViewHolder
+            if (metrics == null) {
+                holder = createListHolder(parent, layoutId);
+            } else {
+                long createStart = metrics.begin(QuickMetrics.PHASE_CREATE);
+                try {
                     holder = createListHolder(parent, layoutId);
+                } finally {
+                    metrics.end(QuickMetrics.PHASE_CREATE, viewType, createStart);
                 }
+                metrics.countInflate(viewType);
+            }
+        } else {
+            mListReuseCount++;
+            if (metrics != null) {
+                metrics.countReuse(viewType);
             }
-
         }
         // 绑定View的数据
-        convert(holder, mData.get(position), position);
+        if (mPagedList != null) {
+            mPagedList.loadAround(position);
+        }
+        prepareBind(holder, position);
+        if (metrics == null) {
+            convert(holder, item, position);
+        } else {
+            long bindStart = metrics.begin(QuickMetrics.PHASE_BIND);
+            try {
+                convert(holder, item, position);
+            } finally {
+                metrics.end(QuickMetrics.PHASE_BIND, viewType, bindStart);
+            }
+        }
         return holder.itemView;
     }
 
@@ -87,18 +210,67 @@ public abstract class QuickAdapter<T> extends BaseAdapter {
     @NonNull
     private QuickViewHolder createListHolder(ViewGroup parent, int layoutId) {
         QuickViewHolder holder;
-        View itemView = LayoutInflater.from(mContext).inflate(layoutId, parent, false);
+        View itemView = inflate(layoutId, parent);
+        mListInflateCount++;
         holder = new QuickViewHolder(itemView, layoutId);
+        holder.setMemoizeEnabled(mMemoizeEnabled);
+        holder.adopt(this);
         itemView.setTag(holder);
+        wireClicks(holder);
         return holder;
     }
 
+    /**
+     * 加载条目布局，有预加载的View就直接用
+     */
+    private View inflate(int layoutId, ViewGroup parent) {
+        if (mInflatePool != null) {
+            return mInflatePool.inflate(layoutId, parent);
+        }
+        return LayoutInflater.from(mContext).inflate(layoutId, parent, false);
+    }
+
+    /**
+     * 设置布局预加载池，可以几个Adapter共用
+     */
+    public void setInflatePool(QuickInflatePool pool) {
+        this.mInflatePool = pool;
+    }
+
+    /**
+     * 设置共用的回收池，要在setAdapter之前调用。
+     * 设置后RecyclerView的viewType就是布局ID，相同布局的条目可以在不同列表间复用
+     */
+    public void setSharedPool(QuickRecycledViewPool pool) {
+        this.mSharedPool = pool;
+    }
+
+    /**
+     * 设置性能统计，为null时关闭，关闭时几乎没有开销。
+     * ListView的viewType是从0开始的连续下标
+     */
+    public void setMetrics(QuickMetrics metrics) {
+        this.mMetrics = metrics;
+    }
+
+    public QuickMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 新建的ViewHolder是否开启设置值的记忆，见QuickViewHolder.setMemoizeEnabled
+     */
+    public void setMemoizeEnabled(boolean enabled) {
+        this.mMemoizeEnabled = enabled;
+    }
+
     /**
      * ViewType的数量
      */
     @Override
     public int getViewTypeCount() {
-        // 多条目的
+        // 多条目的，getItemViewType返回的是从0开始的连续下标
+        // 多留一个，QuickMultiSupport少报了数量也不会马上超出
         if (mSupport != null) {
             return mSupport.getViewTypeCount() + super.getViewTypeCount();
         }
@@ -110,45 +282,213 @@ public abstract class QuickAdapter<T> extends BaseAdapter {
      */
     @Override
     public int getItemViewType(int position) {
-        mPosition = position;
         // 多条目的
+        if (mSharedPool != null) {
+            // 共用回收池时，用布局ID区分条目
+            T data = mData.get(position);
+            int viewType = resolveLayoutId(data);
+            if (mViewTypes != null) {
+                mViewTypes.recordSpan(viewType, data);
+            }
+            return viewType;
+        }
         if (mSupport != null) {
-            return mSupport.getItemViewType(mData.get(position));
+            // 记下viewType对应的布局，创建ViewHolder时直接用
+            int viewType = mViewTypes.getItemViewType(mData.get(position));
+            if (isListView) {
+                return getDenseViewType(viewType);
+            }
+            return viewType;
         }
         return super.getItemViewType(position);
     }
 
+    /**
+     * ListView的连续viewType，超出数量时不复用这种条目并警告一次
+     */
+    private int getDenseViewType(int viewType) {
+        int count = getViewTypeCount();
+        int dense = mViewTypes.getDenseViewType(viewType, count);
+        if (dense == QuickViewTypes.IGNORE_VIEW_TYPE && !mViewTypeWarned) {
+            mViewTypeWarned = true;
+            Log.w(TAG, "More view types than getViewTypeCount() " + count + ", extra types are not recycled");
+        }
+        return dense;
+    }
 
-    // RecyclerView=================================================================================
+    /**
+     * ListView、GridView调用setAdapter时会注册观察者
+     */
     @Override
-    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        isRecycler = true;
-        // 如果是多条目，viewType就是布局ID
-        View view;
-        if (mSupport != null) {
+    public void registerDataSetObserver(DataSetObserver observer) {
+        super.registerDataSetObserver(observer);
+        isListView = true;
+    }
+
+    /**
+     * viewType是否合并条目
+     */
+    private boolean isSpanViewType(int viewType) {
+        return mViewTypes != null && mViewTypes.isSpan(viewType);
+    }
+
+    /**
+     * 瀑布流在创建ViewHolder时就设置占满一行，不用等显示之后再布局一次。
+     * 是不是瀑布流看条目的LayoutParams，或者要加入的RecyclerView现在的LayoutManager，
+     * setAdapter之后才setLayoutManager也能判断
+     *
+     * @param parent 要加入的RecyclerView，不知道时为null
+     */
+    private void applyFullSpan(QuickViewHolder holder, int viewType, ViewGroup parent) {
+        if (mSupport == null) {
+            return;
+        }
+        ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
+        boolean staggered = lp instanceof StaggeredGridLayoutManager.LayoutParams
+                || parent instanceof RecyclerView
+                && ((RecyclerView) parent).getLayoutManager() instanceof StaggeredGridLayoutManager;
+        if (!staggered) {
+            return;
+        }
+        boolean fullSpan = isSpanViewType(viewType);
+        StaggeredGridLayoutManager.LayoutParams p;
+        if (lp instanceof StaggeredGridLayoutManager.LayoutParams) {
+            p = (StaggeredGridLayoutManager.LayoutParams) lp;
+        } else if (fullSpan) {
+            // 预加载的View可能是其它父布局生成的LayoutParams
+            p = lp == null ? new StaggeredGridLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT) : new StaggeredGridLayoutManager.LayoutParams(lp);
+            holder.itemView.setLayoutParams(p);
+        } else {
+            return;
+        }
+        if (p.isFullSpan() != fullSpan) {
+            p.setFullSpan(fullSpan);
+        }
+    }
+
+    /**
+     * ListView加载布局的次数，复用正常的话滚动时不会一直增加
+     */
+    public int getListInflateCount() {
+        return mListInflateCount;
+    }
+
+    /**
+     * ListView复用convertView的次数
+     */
+    public int getListReuseCount() {
+        return mListReuseCount;
+    }
+
+    /**
+     * 数据对应的布局ID
+     */
+    private int resolveLayoutId(T data) {
+        if (mSupport == null) {
+            return mLayoutId;
+        }
+        return mViewTypes.getLayoutId(data);
+    }
+
+    /**
+     * viewType对应的布局ID
+     */
+    private int getLayoutIdForViewType(ViewGroup parent, int viewType) {
+        if (mSharedPool != null) {
+            return viewType;
+        }
+        if (mSupport == null) {
+            return mLayoutId;
+        }
+        int layoutId = mViewTypes.getLayoutIdForViewType(viewType);
+        if (layoutId == 0) {
+            // 悬浮布局可能在RecyclerView之前创建，根据位置查一次
             Object tagPosition = parent.getTag(R.id.view_position);
-            int layoutId = mSupport.getLayoutId(mData.get(mPosition));
-            // 如果是滚动布局
             if (tagPosition != null) {
-                int position = (int) tagPosition;
-                layoutId = mSupport.getLayoutId(mData.get(position));
+                getItemViewType((int) tagPosition);
+                layoutId = mViewTypes.getLayoutIdForViewType(viewType);
             }
-            view = LayoutInflater.from(mContext).inflate(layoutId, parent, false);
-        } else {
-            view = LayoutInflater.from(mContext).inflate(mLayoutId, parent, false);
+            if (layoutId == 0) {
+                throw new IllegalStateException("Unknown viewType " + viewType);
+            }
+        }
+        return layoutId;
+    }
+
+
+    // RecyclerView=================================================================================
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        isRecycler = true;
+        QuickMetrics metrics = mMetrics;
+        if (metrics == null) {
+            return createRecyclerHolder(parent, viewType);
         }
+        long start = metrics.begin(QuickMetrics.PHASE_CREATE);
+        try {
+            return createRecyclerHolder(parent, viewType);
+        } finally {
+            metrics.end(QuickMetrics.PHASE_CREATE, viewType, start);
+        }
+    }
 
-        QuickViewHolder holder = new QuickViewHolder(view);
+    private QuickViewHolder createRecyclerHolder(ViewGroup parent, int viewType) {
+        // 根据viewType直接找到布局，不依赖最后一次getItemViewType的位置
+        int layoutId = getLayoutIdForViewType(parent, viewType);
+        View view = inflate(layoutId, parent);
+
+        QuickViewHolder holder = new QuickViewHolder(view, layoutId);
+        holder.setMemoizeEnabled(mMemoizeEnabled);
+        holder.adopt(this);
+        applyFullSpan(holder, viewType, parent);
+        wireClicks(holder);
+        if (mSharedPool != null) {
+            mSharedPool.onCreated(viewType);
+        }
         return holder;
     }
 
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        onBindViewHolder(holder, position, Collections.emptyList());
+    }
+
+    /**
+     * 带局部刷新数据的绑定，payloads为空时就是完整绑定
+     */
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List payloads) {
         if (holder instanceof QuickViewHolder) {
-            convert((QuickViewHolder) holder, mData.get(position), position);
+            QuickViewHolder quickHolder = (QuickViewHolder) holder;
+            if (quickHolder.getOwner() != this) {
+                // 从共用回收池拿到的其它Adapter的ViewHolder，清掉之前的状态
+                quickHolder.adopt(this);
+                quickHolder.setMemoizeEnabled(mMemoizeEnabled);
+                applyFullSpan(quickHolder, quickHolder.getItemViewType(), null);
+            }
+            if (mPagedList != null) {
+                mPagedList.loadAround(position);
+            }
+            prepareBind(quickHolder, position);
+            QuickMetrics metrics = mMetrics;
+            if (metrics == null) {
+                convert(quickHolder, mData.get(position), position, (List<Object>) payloads);
+                return;
+            }
+            // 悬浮的ViewHolder不是RecyclerView创建的，getItemViewType是INVALID_TYPE
+            int viewType = holder.getItemViewType();
+            if (viewType == RecyclerView.INVALID_TYPE) {
+                viewType = getItemViewType(position);
+            }
+            long start = metrics.begin(QuickMetrics.PHASE_BIND);
+            try {
+                convert(quickHolder, mData.get(position), position, (List<Object>) payloads);
+            } finally {
+                metrics.end(QuickMetrics.PHASE_BIND, viewType, start);
+            }
         }
-
     }
 
     @Override
@@ -156,43 +496,91 @@ public abstract class QuickAdapter<T> extends BaseAdapter {
         return mData.size();
     }
 
+    /**
+     * 回收时取消还没完成的异步图片，不再引用这个条目
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (holder instanceof QuickViewHolder) {
+            ((QuickViewHolder) holder).cancelAsyncImages();
+        }
+    }
+
     @Override
     public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        // 还没创建ViewHolder之前就可能修改数据，这里就要确定是RecyclerView
+        isRecycler = true;
+        if (mSharedPool != null && recyclerView != null) {
+            recyclerView.setRecycledViewPool(mSharedPool);
+        }
         if (mSupport == null || recyclerView == null) {
             return;
         }
         RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
         if (layoutManager instanceof GridLayoutManager) {
-            final GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
-            final GridLayoutManager.SpanSizeLookup spanSizeLookup = gridLayoutManager.getSpanSizeLookup();
+            GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
             // 如果设置合并单元格就占用SpanCount那个多个位置
-            gridLayoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
+            gridLayoutManager.setSpanSizeLookup(new QuickSpanSizeLookup(gridLayoutManager,
+                    gridLayoutManager.getSpanSizeLookup()));
+            gridLayoutManager.setSpanCount(gridLayoutManager.getSpanCount());
+        }
+    }
+
+    /**
+     * 网格的合并规则：按viewType直接判断，并缓存每个位置所在的列和行，
+     * 数据版本变了才清空缓存
+     */
+    private class QuickSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+        private final GridLayoutManager mLayoutManager;
+        private final GridLayoutManager.SpanSizeLookup mOrigin;
+        // 位置所在的行
+        private final QuickSpanCache mSpanCache;
+        private int mCacheVersion;
+        private int mCacheSpanCount;
+
+        QuickSpanSizeLookup(GridLayoutManager layoutManager, GridLayoutManager.SpanSizeLookup origin) {
+            this.mLayoutManager = layoutManager;
+            // 自己之前设置过的话不要嵌套
+            this.mOrigin = origin instanceof QuickAdapter.QuickSpanSizeLookup
+                    ? ((QuickAdapter.QuickSpanSizeLookup) origin).mOrigin : origin;
+            this.mSpanCache = new QuickSpanCache(new QuickSpanCache.SpanSizer() {
                 @Override
                 public int getSpanSize(int position) {
-                    if (mSupport.isSpan(mData.get(position))) {
-                        return gridLayoutManager.getSpanCount();
-                    } else if (spanSizeLookup != null) {
-                        return spanSizeLookup.getSpanSize(position);
-                    }
-                    return 1;
+                    return QuickSpanSizeLookup.this.getSpanSize(position);
                 }
             });
-            gridLayoutManager.setSpanCount(gridLayoutManager.getSpanCount());
+            setSpanIndexCacheEnabled(true);
+            mCacheVersion = mDataVersion;
         }
-    }
 
-    @Override
-    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
-        if (mSupport == null) {
-            return;
+        @Override
+        public int getSpanSize(int position) {
+            if (isSpanViewType(getItemViewType(position))) {
+                return mLayoutManager.getSpanCount();
+            } else if (mOrigin != null) {
+                return mOrigin.getSpanSize(position);
+            }
+            return 1;
+        }
+
+        @Override
+        public int getSpanIndex(int position, int spanCount) {
+            checkCache(spanCount);
+            return super.getSpanIndex(position, spanCount);
+        }
+
+        @Override
+        public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+            checkCache(spanCount);
+            return mSpanCache.getSpanGroupIndex(adapterPosition, spanCount);
         }
-        int position = holder.getLayoutPosition();
-        // 如果设置合并单元格
-        if (mSupport.isSpan(mData.get(position))) {
-            ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
-            if (lp != null && lp instanceof StaggeredGridLayoutManager.LayoutParams) {
-                StaggeredGridLayoutManager.LayoutParams p = (StaggeredGridLayoutManager.LayoutParams) lp;
-                p.setFullSpan(true);
+
+        private void checkCache(int spanCount) {
+            if (mCacheVersion != mDataVersion || mCacheSpanCount != spanCount) {
+                mCacheVersion = mDataVersion;
+                mCacheSpanCount = spanCount;
+                mSpanCache.invalidate();
+                invalidateSpanIndexCache();
             }
         }
     }
@@ -200,78 +588,1320 @@ public abstract class QuickAdapter<T> extends BaseAdapter {
     // RecyclerView=================================================================================
 
 
+    //==========================================点击事件================================================
+
     /**
-     * 绑定View的数据
+     * 条目的点击事件
      */
-    protected abstract void convert(QuickViewHolder holder, T item, int position);
+    public interface OnItemClickListener<T> {
+        void onItemClick(QuickAdapter<T> adapter, View view, T item, int position);
+    }
 
+    /**
+     * 条目里子控件的点击事件
+     */
+    public interface OnItemChildClickListener<T> {
+        void onItemChildClick(QuickAdapter<T> adapter, View view, T item, int position);
+    }
 
-    //==========================================数据相关================================================
-    public void add(T elem) {
-        mData.add(elem);
-        notifyData();
+    /**
+     * 设置条目的点击事件，创建ViewHolder时接上一个共用的监听，
+     * 点击时再查位置和数据，convert里不用每次new监听
+     */
+    public void setOnItemClickListener(OnItemClickListener<T> listener) {
+        this.mOnItemClickListener = listener;
+        mClickWiring = new Object();
+    }
 
+    /**
+     * 设置子控件的点击事件
+     *
+     * @param viewIds 要监听点击的子控件ID
+     */
+    public void setOnItemChildClickListener(OnItemChildClickListener<T> listener, int... viewIds) {
+        this.mOnItemChildClickListener = listener;
+        this.mChildClickViewIds = viewIds;
+        mClickWiring = new Object();
     }
 
+    /**
+     * 绑定之前记下位置，点击设置变了或者是其它Adapter的ViewHolder就重新接上监听
+     */
+    private void prepareBind(QuickViewHolder holder, int position) {
+        holder.setBindPosition(position);
+        if (holder.getClickWiring() != mClickWiring) {
+            wireClicks(holder);
+        }
+        mLastBindPosition = position;
+        if (mTextEntries != null && mPagedList == null) {
+            bindPrecomputed(holder, mData.get(position));
+            precomputeAhead(position + 1);
+        }
+    }
 
-    public void addAll(List<T> data) {
-        mData.addAll(data);
-        notifyData();
+    /**
+     * 给ViewHolder接上共用的点击监听，没有设置的事件不接，不影响ListView自己的点击
+     */
+    private void wireClicks(QuickViewHolder holder) {
+        holder.setClickWiring(mClickWiring);
+        if (mOnItemClickListener != null) {
+            holder.itemView.setTag(R.id.view_holder, holder);
+            holder.itemView.setOnClickListener(mClickDispatcher);
+        }
+        if (mOnItemChildClickListener != null && mChildClickViewIds != null) {
+            for (int viewId : mChildClickViewIds) {
+                View view = holder.getView(viewId);
+                if (view != null) {
+                    view.setTag(R.id.view_holder, holder);
+                    view.setOnClickListener(mClickDispatcher);
+                }
+            }
+        }
     }
 
-    public void addFirst(T elem) {
-        mData.add(0, elem);
-        notifyData();
+    /**
+     * 点击时ViewHolder对应的位置，已经失效返回RecyclerView.NO_POSITION
+     */
+    private int resolvePosition(QuickViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION && !(holder.itemView.getParent() instanceof RecyclerView)) {
+            // ListView和悬浮的ViewHolder不在RecyclerView里，用最后绑定的位置
+            position = holder.getBindPosition();
+        }
+        if (position < 0 || position >= mData.size()) {
+            return RecyclerView.NO_POSITION;
+        }
+        return position;
     }
 
-    public void set(T oldElem, T newElem) {
-        set(mData.indexOf(oldElem), newElem);
-        notifyData();
+    private final View.OnClickListener mClickDispatcher = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            Object tag = v.getTag(R.id.view_holder);
+            if (!(tag instanceof QuickViewHolder)) {
+                return;
+            }
+            QuickViewHolder holder = (QuickViewHolder) tag;
+            int position = resolvePosition(holder);
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            T item = mData.get(position);
+            if (v == holder.itemView) {
+                if (mOnItemClickListener != null) {
+                    mOnItemClickListener.onItemClick(QuickAdapter.this, v, item, position);
+                }
+            } else if (mOnItemChildClickListener != null) {
+                mOnItemChildClickListener.onItemChildClick(QuickAdapter.this, v, item, position);
+            }
+        }
+    };
+
+
+    //==========================================文本预排版================================================
+
+    /**
+     * 取出条目里要预排版的文本，没有返回null。在主线程调用
+     */
+    public interface TextExtractor<T> {
+        CharSequence getText(T item);
     }
 
-    public void set(int index, T elem) {
-        mData.set(index, elem);
-        notify();
+    private static class TextEntry<T> {
+        final QuickTextSpec spec;
+        final TextExtractor<T> extractor;
+
+        TextEntry(QuickTextSpec spec, TextExtractor<T> extractor) {
+            this.spec = spec;
+            this.extractor = extractor;
+        }
     }
 
-    public void remove(T elem) {
-        mData.remove(elem);
-        notifyData();
+    /**
+     * 注册文本预排版：数据变了或者滚动时，在后台给后面的条目排版，按条目key缓存，
+     * 绑定时QuickViewHolder.setText直接使用。文本控件要是QuickTextView，分页模式下不预排版
+     *
+     * @param viewType 条目类型，共用回收池时是布局ID
+     */
+    public void addTextPrecompute(int viewType, QuickTextSpec spec, TextExtractor<T> extractor) {
+        if (mTextEntries == null) {
+            mTextEntries = new SparseArray<>();
+        }
+        ArrayList<TextEntry<T>> entries = mTextEntries.get(viewType);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            mTextEntries.put(viewType, entries);
+        }
+        entries.add(new TextEntry<>(spec, extractor));
+        mPrecomputeEnd = 0;
+        precomputeAhead(mLastBindPosition);
     }
 
-    public void remove(int index) {
-        mData.remove(index);
-        notifyData();
+    /**
+     * 数据整个换掉之后，从最后绑定的位置重新开始预排版
+     */
+    private void restartPrecompute() {
+        if (mTextEntries != null) {
+            mPrecomputeEnd = 0;
+            precomputeAhead(Math.min(mLastBindPosition, Math.max(mData.size() - 1, 0)));
+        }
     }
 
-    public void replaceAll(List<T> elem) {
-        mData.clear();
-        mData.addAll(elem);
-        notifyData();
+    /**
+     * 安排position之后的条目预排版，上次安排的还剩一半以上就不再安排。
+     * 文本和key在主线程取出，后台只排版
+     */
+    private void precomputeAhead(int position) {
+        if (mTextEntries == null || mPagedList != null) {
+            return;
+        }
+        if (mPrecomputeVersion != mDataVersion) {
+            // 数据变了，位置对不上了
+            mPrecomputeVersion = mDataVersion;
+            mPrecomputeEnd = 0;
+        }
+        if (position + PRECOMPUTE_AHEAD / 2 < mPrecomputeEnd) {
+            return;
+        }
+        int start = Math.max(position, mPrecomputeEnd);
+        int end = Math.min(position + PRECOMPUTE_AHEAD, mData.size());
+        if (start >= end) {
+            return;
+        }
+        mPrecomputeEnd = end;
+        boolean queued = false;
+        synchronized (mPrecomputeQueue) {
+            for (int i = start; i < end; i++) {
+                T item = mData.get(i);
+                ArrayList<TextEntry<T>> entries = mTextEntries.get(rawViewType(item));
+                if (entries == null) {
+                    continue;
+                }
+                Object key = textKey(item);
+                for (int j = 0, size = entries.size(); j < size; j++) {
+                    TextEntry<T> entry = entries.get(j);
+                    CharSequence text = entry.extractor.getText(item);
+                    if (text != null && entry.spec.get(key, text) == null) {
+                        mPrecomputeSpecs.add(entry.spec);
+                        mPrecomputeKeys.add(key);
+                        mPrecomputeTexts.add(text);
+                        queued = true;
+                    }
+                }
+            }
+            if (!queued || mPrecomputePosted) {
+                // 后台还在排版的话会接着处理新加的
+                return;
+            }
+            mPrecomputePosted = true;
+        }
+        QuickExecutors.background().execute(mPrecomputeTask);
     }
 
     /**
-     * 清除
+     * 后台依次排版队列里的文本，排完清空队列，列表和任务一直复用
      */
-    public void clear() {
-        mData.clear();
-        notifyData();
+    private final Runnable mPrecomputeTask = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                QuickTextSpec spec;
+                Object key;
+                CharSequence text;
+                synchronized (mPrecomputeQueue) {
+                    if (mPrecomputeRead == mPrecomputeSpecs.size()) {
+                        mPrecomputeSpecs.clear();
+                        mPrecomputeKeys.clear();
+                        mPrecomputeTexts.clear();
+                        mPrecomputeRead = 0;
+                        mPrecomputePosted = false;
+                        return;
+                    }
+                    int i = mPrecomputeRead++;
+                    spec = mPrecomputeSpecs.get(i);
+                    key = mPrecomputeKeys.get(i);
+                    text = mPrecomputeTexts.get(i);
+                }
+                spec.precompute(key, text);
+            }
+        }
+    };
+
+    /**
+     * 把条目已经排版好的结果交给ViewHolder，setText时再核对文本
+     */
+    private void bindPrecomputed(QuickViewHolder holder, T item) {
+        ArrayList<TextEntry<T>> entries = mTextEntries.get(rawViewType(item));
+        if (entries == null) {
+            return;
+        }
+        Object key = textKey(item);
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            QuickTextSpec spec = entries.get(i).spec;
+            holder.setPrecomputed(spec.getViewId(), spec.get(key));
+        }
     }
 
-    private void notifyData() {
-        if (isRecycler) {
-            notifyDataSetChanged();
-        } else {
-            notifyListDataSetChanged();
+    /**
+     * 条目没有经过ListView映射的viewType
+     */
+    private int rawViewType(T item) {
+        if (mSharedPool != null) {
+            return resolveLayoutId(item);
+        }
+        if (mViewTypes != null) {
+            return mViewTypes.getItemViewType(item);
         }
+        return 0;
     }
 
-    public boolean contains(T elem) {
-        return mData.contains(elem);
+    /**
+     * 预排版缓存的key，设置了QuickKeyProvider就用条目的key，否则用条目本身
+     */
+    private Object textKey(T item) {
+        return mKeyIndex != null ? mKeyIndex.keyOf(item) : item;
     }
 
 
-    public List<T> getData() {
-        return mData;
+    //==========================================过滤================================================
+
+    /**
+     * 过滤条件，在后台线程调用
+     */
+    public interface FilterPredicate<T> {
+        boolean matches(T item, CharSequence constraint);
+    }
+
+    /**
+     * 设置过滤条件，条件变长时只在上次的结果里找。
+     * 所以要求能匹配"abc"的条目也一定能匹配"ab"，例如包含关系，不满足时用两个参数的方法
+     */
+    public void setFilterPredicate(FilterPredicate<T> predicate) {
+        setFilterPredicate(predicate, true);
+    }
+
+    /**
+     * 设置过滤条件
+     *
+     * @param narrowable 条件变长时是否只在上次的结果里找
+     */
+    public void setFilterPredicate(FilterPredicate<T> predicate, boolean narrowable) {
+        this.mFilterPredicate = predicate;
+        this.mFilterNarrowable = narrowable;
+        // 条件变了，之前的结果不能再用来缩小范围
+        mFilterGeneration.incrementAndGet();
+        if (mFilterSource != null) {
+            refilter(mFilterSource);
+        }
+    }
+
+    /**
+     * 后台过滤，新的条件会让还没完成的过滤作废。
+     * 结果只通知增删的位置，ListView一次整体刷新。
+     * 过滤中add、addAll、addFirst、set、remove修改的是完整数据，新的条目在主线程按当前条件判断是否显示；
+     * replaceAll、submitList按当前条件重新过滤；clear会退出过滤
+     */
+    @Override
+    public Filter getFilter() {
+        if (mFilter == null) {
+            mFilter = new QuickFilter();
+        }
+        return mFilter;
+    }
+
+    /**
+     * 当前的过滤条件，不在过滤时返回null
+     */
+    public CharSequence getFilterConstraint() {
+        return mFilterSource != null ? mFilterConstraint : null;
+    }
+
+    /**
+     * 完整数据换了，按当前条件重新过滤
+     */
+    private void refilter(QuickSnapshot<T> source) {
+        mFilterSource = source;
+        mFilterResult = null;
+        startFiltering(mFilterConstraint);
+    }
+
+    /**
+     * 不再过滤，不通知刷新，调用的地方自己处理数据
+     */
+    private void leaveFilterMode() {
+        if (mFilterSource == null) {
+            return;
+        }
+        mFilterGeneration.incrementAndGet();
+        mData = mFilterSource;
+        mFilterSource = null;
+        mFilterResult = null;
+        if (mKeyIndex != null) {
+            mKeyIndex.invalidate();
+        }
+    }
+
+    /**
+     * 在主线程准备一次过滤：让还没完成的那次作废，记下完整数据和上次的结果，分页模式返回null
+     */
+    private FilterTask prepareFiltering(CharSequence constraint) {
+        if (mPagedList != null) {
+            // 分页的数据没有全部加载，不能过滤
+            return null;
+        }
+        mFilterConstraint = constraint;
+        if (mFilterSource == null) {
+            mFilterSource = (QuickSnapshot<T>) mData;
+        }
+        return new FilterTask(mFilterGeneration.incrementAndGet(), mFilterSource, mFilterResult,
+                mFilterPredicate, mFilterNarrowable, constraint == null ? "" : constraint.toString());
+    }
+
+    /**
+     * 在主线程开始一次过滤，到后台线程池过滤，完成后回到主线程应用
+     */
+    void startFiltering(CharSequence constraint) {
+        final FilterTask task = prepareFiltering(constraint);
+        if (task == null) {
+            return;
+        }
+        QuickExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!runFilter(task)) {
+                    return;
+                }
+                QuickExecutors.main().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverFilterResult(task);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在主线程应用过滤结果，作废了或者完整数据已经换了就丢掉
+     */
+    private void deliverFilterResult(FilterTask task) {
+        if (task.result == null || task.generation != mFilterGeneration.get()) {
+            return;
+        }
+        if (task.source != mFilterSource) {
+            // 过滤期间完整数据被add、remove等修改了，按修改后的重新过滤
+            if (mFilterSource != null) {
+                startFiltering(mFilterConstraint);
+            }
+            return;
+        }
+        applyFilterResult(task.result);
+    }
+
+    /**
+     * 在后台线程过滤，结果放在task.result，作废了返回false
+     */
+    private boolean runFilter(FilterTask task) {
+        QuickSnapshot<T> source = task.source;
+        FilterResult<T> base = task.base;
+        String query = task.query;
+        if (query.isEmpty() || task.predicate == null) {
+            task.result = new FilterResult<>(source, query, null, source);
+            return true;
+        }
+        // 条件只是变长了，在上次的结果里找
+        boolean narrow = task.narrowable && base != null && base.source == source
+                && base.indexes != null && query.startsWith(base.constraint);
+        int candidates = narrow ? base.indexes.length : source.size();
+        int[] indexes = new int[candidates];
+        List<T> items = new ArrayList<>();
+        int count = 0;
+        if (narrow) {
+            for (int i = 0; i < candidates; i++) {
+                if (i % FILTER_CHECK_INTERVAL == 0 && task.isCancelled()) {
+                    return false;
+                }
+                int index = base.indexes[i];
+                T item = source.get(index);
+                if (task.predicate.matches(item, query)) {
+                    indexes[count++] = index;
+                    items.add(item);
+                }
+            }
+        } else {
+            int index = 0;
+            for (T item : source) {
+                if (index % FILTER_CHECK_INTERVAL == 0 && task.isCancelled()) {
+                    return false;
+                }
+                if (task.predicate.matches(item, query)) {
+                    indexes[count++] = index;
+                    items.add(item);
+                }
+                index++;
+            }
+        }
+        task.result = new FilterResult<>(source, query, Arrays.copyOf(indexes, count), QuickSnapshot.copyOf(items));
+        return true;
+    }
+
+    /**
+     * 一次过滤的结果：在完整数据里的下标，下标为null表示全部
+     */
+    private static class FilterResult<T> {
+        final QuickSnapshot<T> source;
+        final String constraint;
+        final int[] indexes;
+        final QuickSnapshot<T> items;
+
+        FilterResult(QuickSnapshot<T> source, String constraint, int[] indexes, QuickSnapshot<T> items) {
+            this.source = source;
+            this.constraint = constraint;
+            this.indexes = indexes;
+            this.items = items;
+        }
+    }
+
+    /**
+     * 一次过滤用到的数据，在主线程准备好，后台线程只读
+     */
+    private class FilterTask {
+        final int generation;
+        final QuickSnapshot<T> source;
+        final FilterResult<T> base;
+        final FilterPredicate<T> predicate;
+        final boolean narrowable;
+        final String query;
+        volatile FilterResult<T> result;
+
+        FilterTask(int generation, QuickSnapshot<T> source, FilterResult<T> base,
+                   FilterPredicate<T> predicate, boolean narrowable, String query) {
+            this.generation = generation;
+            this.source = source;
+            this.base = base;
+            this.predicate = predicate;
+            this.narrowable = narrowable;
+            this.query = query;
+        }
+
+        boolean isCancelled() {
+            return generation != mFilterGeneration.get();
+        }
+    }
+
+    /**
+     * Filter在它自己的线程里调用performFiltering，这个线程就当作后台线程：
+     * 先回主线程准备好数据，在这里过滤，publishResults在主线程应用结果。
+     * FilterListener和AutoCompleteTextView收到的数量是应用之后显示的条目数
+     */
+    private class QuickFilter extends Filter {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            FilterTask task = prepareOnMain(constraint);
+            if (task != null && runFilter(task)) {
+                results.values = task;
+                results.count = task.result.items.size();
+            }
+            return results;
+        }
+
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            if (results.values != null) {
+                deliverFilterResult((FilterTask) results.values);
+            }
+            // 作废了的话是现在显示的数量
+            results.count = mData.size();
+        }
+
+        /**
+         * 过滤的状态只在主线程修改，准备数据要回到主线程
+         */
+        private FilterTask prepareOnMain(final CharSequence constraint) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                return prepareFiltering(constraint);
+            }
+            final AtomicReference<FilterTask> task = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            QuickExecutors.main().post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.set(prepareFiltering(constraint));
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return task.get();
+        }
+    }
+
+    /**
+     * 应用过滤结果：完整数据没变时，两次结果都是它的子序列，按下标合并出增删的范围
+     */
+    private void applyFilterResult(FilterResult<T> result) {
+        FilterResult<T> previous = mFilterResult;
+        QuickSnapshot<T> displayedSource = previous != null ? previous.source : mFilterSource;
+        int[] oldIndexes = previous != null ? previous.indexes : null;
+        boolean mergeable = displayedSource == result.source
+                && (previous != null || mData == mFilterSource);
+        int oldCount = mData.size();
+        mData = result.items;
+        if (result.indexes == null) {
+            // 条件清空，回到完整数据
+            mFilterSource = null;
+            mFilterResult = null;
+        } else {
+            mFilterResult = result;
+        }
+        if (!mergeable) {
+            notifyData();
+            return;
+        }
+        int newCount = result.items.size();
+        beginUpdate();
+        try {
+            int position = 0;
+            int i = 0;
+            int j = 0;
+            while (i < oldCount || j < newCount) {
+                int oldIndex = i < oldCount ? (oldIndexes == null ? i : oldIndexes[i]) : Integer.MAX_VALUE;
+                int newIndex = j < newCount ? (result.indexes == null ? j : result.indexes[j]) : Integer.MAX_VALUE;
+                if (oldIndex == newIndex) {
+                    position++;
+                    i++;
+                    j++;
+                } else if (oldIndex < newIndex) {
+                    // 连续移除的合并成一次
+                    int run = 0;
+                    while (i < oldCount && (oldIndexes == null ? i : oldIndexes[i]) < newIndex) {
+                        run++;
+                        i++;
+                    }
+                    notifyRemoved(position, run);
+                } else {
+                    int run = 0;
+                    while (j < newCount && (result.indexes == null ? j : result.indexes[j]) < oldIndex) {
+                        run++;
+                        j++;
+                    }
+                    notifyInserted(position, run);
+                    position += run;
+                }
+            }
+        } finally {
+            if (mKeyIndex != null) {
+                mKeyIndex.invalidate();
+            }
+            endUpdate();
+        }
+    }
+
+
+    /**
+     * 绑定View的数据
+     */
+    protected abstract void convert(QuickViewHolder holder, T item, int position);
+
+    /**
+     * 局部刷新，只更新payloads对应的控件，默认完整绑定。
+     * payloads为空时必须完整绑定
+     */
+    protected void convert(QuickViewHolder holder, T item, int position, List<Object> payloads) {
+        convert(holder, item, position);
+    }
+
+
+    //==========================================数据相关================================================
+
+    /**
+     * 在最后添加，分页模式下不能调用
+     */
+    public void add(T elem) {
+        if (mFilterSource != null) {
+            insertFiltered(false, Collections.singletonList(elem));
+            return;
+        }
+        mData = editable().plus(elem);
+        cancelPendingDiff();
+        onKeysInserted(mData.size() - 1, 1);
+        notifyInserted(mData.size() - 1, 1);
+    }
+
+
+    /**
+     * 在最后添加多条，分页模式下不能调用
+     */
+    public void addAll(List<T> data) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        if (mFilterSource != null) {
+            insertFiltered(false, data);
+            return;
+        }
+        int start = mData.size();
+        mData = editable().plusAll(data);
+        cancelPendingDiff();
+        onKeysInserted(start, data.size());
+        notifyInserted(start, data.size());
+    }
+
+    /**
+     * 在最前面添加，分页模式下不能调用
+     */
+    public void addFirst(T elem) {
+        if (mFilterSource != null) {
+            insertFiltered(true, Collections.singletonList(elem));
+            return;
+        }
+        mData = editable().plus(0, elem);
+        cancelPendingDiff();
+        onKeysInserted(0, 1);
+        notifyInserted(0, 1);
+    }
+
+    public void set(T oldElem, T newElem) {
+        int index = indexOf(oldElem);
+        if (index >= 0) {
+            set(index, newElem);
+        }
+    }
+
+    public void set(int index, T elem) {
+        set(index, elem, null);
+    }
+
+    /**
+     * 替换条目并局部刷新，RecyclerView会把payload传给convert。分页模式下不能调用
+     */
+    public void set(int index, T elem, Object payload) {
+        if (mFilterSource != null) {
+            setFiltered(index, elem, payload);
+            return;
+        }
+        QuickSnapshot<T> data = editable();
+        if (mKeyIndex != null) {
+            mKeyIndex.onReplaced(index, data.get(index), elem);
+        }
+        mData = data.with(index, elem);
+        cancelPendingDiff();
+        notifyChanged(index, 1, payload);
+    }
+
+    /**
+     * 条目的数据在外面改了，只局部刷新这个条目
+     */
+    public void update(int index, Object payload) {
+        notifyChanged(index, 1, payload);
+    }
+
+    public void remove(T elem) {
+        int index = indexOf(elem);
+        if (index >= 0) {
+            remove(index);
+        }
+    }
+
+    /**
+     * 移除，分页模式下不能调用
+     */
+    public void remove(int index) {
+        if (mFilterSource != null) {
+            removeFiltered(index);
+            return;
+        }
+        QuickSnapshot<T> data = editable();
+        mData = data.minus(index);
+        cancelPendingDiff();
+        if (mKeyIndex != null) {
+            mKeyIndex.onRemoved(data, index, 1);
+        }
+        notifyRemoved(index, 1);
+    }
+
+    public void replaceAll(List<T> elem) {
+        leavePagedMode();
+        cancelPendingDiff();
+        if (mFilterSource != null) {
+            // 过滤中，换掉完整数据后按原来的条件重新过滤
+            refilter(QuickSnapshot.copyOf(elem));
+            return;
+        }
+        mData = QuickSnapshot.copyOf(elem);
+        notifyData();
+        restartPrecompute();
+    }
+
+    /**
+     * 清除
+     */
+    public void clear() {
+        cancelPendingDiff();
+        if (leavePagedMode()) {
+            notifyData();
+            return;
+        }
+        // 过滤中显示的是过滤结果，按显示的数量通知
+        int count = mData.size();
+        leaveFilterMode();
+        mData = QuickSnapshot.empty();
+        if (mKeyIndex != null) {
+            mKeyIndex.invalidate();
+        }
+        if (count > 0) {
+            notifyRemoved(0, count);
+        }
+    }
+
+    /**
+     * 插入后更新key索引，中间插入只记下位置变化
+     */
+    private void onKeysInserted(int position, int count) {
+        if (mKeyIndex != null) {
+            mKeyIndex.onInserted(mData, position, count);
+        }
+    }
+
+    /**
+     * 当前可以修改的快照，分页模式下不能修改
+     */
+    private QuickSnapshot<T> editable() {
+        if (!(mData instanceof QuickSnapshot)) {
+            throw new UnsupportedOperationException("Paged data can not be modified");
+        }
+        return (QuickSnapshot<T>) mData;
+    }
+
+    /**
+     * 过滤中在完整数据的最前面或最后面添加，只显示满足当前条件的。
+     * 过滤结果还没出来时显示的数据照常添加，结果出来时发现完整数据变了会重新过滤
+     */
+    private void insertFiltered(boolean first, List<T> items) {
+        QuickSnapshot<T> shown = editable();
+        QuickSnapshot<T> source = first ? mFilterSource.plus(0, items.get(0)) : mFilterSource.plusAll(items);
+        FilterResult<T> result = mFilterResult;
+        List<T> inserted = items;
+        int[] indexes = null;
+        if (result != null) {
+            int[] old = result.indexes;
+            indexes = new int[old.length + items.size()];
+            int size = 0;
+            if (!first) {
+                System.arraycopy(old, 0, indexes, 0, old.length);
+                size = old.length;
+            }
+            int sourcePosition = first ? 0 : mFilterSource.size();
+            inserted = new ArrayList<>();
+            for (int i = 0, count = items.size(); i < count; i++) {
+                T item = items.get(i);
+                if (filterMatches(item, result.constraint)) {
+                    indexes[size++] = sourcePosition + i;
+                    inserted.add(item);
+                }
+            }
+            if (first) {
+                for (int index : old) {
+                    indexes[size++] = index + items.size();
+                }
+            }
+            indexes = Arrays.copyOf(indexes, size);
+        }
+        QuickSnapshot<T> displayed;
+        if (shown == mFilterSource) {
+            displayed = source;
+        } else if (inserted.isEmpty()) {
+            displayed = shown;
+        } else {
+            displayed = first ? shown.plus(0, inserted.get(0)) : shown.plusAll(inserted);
+        }
+        applyFilteredEdit(source, displayed, indexes);
+        if (!inserted.isEmpty()) {
+            int position = first ? 0 : shown.size();
+            onKeysInserted(position, inserted.size());
+            notifyInserted(position, inserted.size());
+        }
+    }
+
+    /**
+     * 过滤中替换显示的条目，替换后不再满足条件就不再显示
+     */
+    private void setFiltered(int index, T elem, Object payload) {
+        QuickSnapshot<T> shown = editable();
+        int sourceIndex = filterSourceIndex(shown, index);
+        QuickSnapshot<T> source = sourceIndex >= 0 ? mFilterSource.with(sourceIndex, elem) : mFilterSource;
+        FilterResult<T> result = mFilterResult;
+        if (result != null && !filterMatches(elem, result.constraint)) {
+            applyFilteredEdit(source, shown.minus(index), withoutIndex(result.indexes, index, -1));
+            if (mKeyIndex != null) {
+                mKeyIndex.onRemoved(shown, index, 1);
+            }
+            notifyRemoved(index, 1);
+            return;
+        }
+        applyFilteredEdit(source, shown == mFilterSource ? source : shown.with(index, elem),
+                result != null ? result.indexes : null);
+        if (mKeyIndex != null) {
+            mKeyIndex.onReplaced(index, shown.get(index), elem);
+        }
+        notifyChanged(index, 1, payload);
+    }
+
+    /**
+     * 过滤中移除显示的条目，同时从完整数据里移除
+     */
+    private void removeFiltered(int index) {
+        QuickSnapshot<T> shown = editable();
+        int sourceIndex = filterSourceIndex(shown, index);
+        QuickSnapshot<T> source = sourceIndex >= 0 ? mFilterSource.minus(sourceIndex) : mFilterSource;
+        FilterResult<T> result = mFilterResult;
+        applyFilteredEdit(source, shown == mFilterSource ? source : shown.minus(index),
+                result != null ? withoutIndex(result.indexes, index, sourceIndex) : null);
+        if (mKeyIndex != null) {
+            mKeyIndex.onRemoved(shown, index, 1);
+        }
+        notifyRemoved(index, 1);
+    }
+
+    /**
+     * 显示的条目在完整数据里的位置。过滤结果还没出来并且完整数据换过的话按内容查找，找不到返回-1
+     */
+    private int filterSourceIndex(QuickSnapshot<T> shown, int index) {
+        if (mFilterResult != null) {
+            return mFilterResult.indexes[index];
+        }
+        if (shown == mFilterSource) {
+            return index;
+        }
+        return mFilterSource.indexOf(shown.get(index));
+    }
+
+    /**
+     * 记下过滤中修改后的完整数据和显示的数据，还没完成的submitList作废
+     *
+     * @param indexes 显示的条目在完整数据里的下标，过滤结果还没出来时为null
+     */
+    private void applyFilteredEdit(QuickSnapshot<T> source, QuickSnapshot<T> displayed, int[] indexes) {
+        if (mFilterResult != null) {
+            mFilterResult = new FilterResult<>(source, mFilterResult.constraint, indexes, displayed);
+        }
+        mFilterSource = source;
+        mData = displayed;
+        cancelPendingDiff();
+    }
+
+    private boolean filterMatches(T item, String constraint) {
+        return mFilterPredicate == null || mFilterPredicate.matches(item, constraint);
+    }
+
+    /**
+     * 去掉position处的下标，removedSource大于等于0时后面的下标减1
+     */
+    private static int[] withoutIndex(int[] indexes, int position, int removedSource) {
+        int[] result = new int[indexes.length - 1];
+        for (int i = 0, j = 0; i < indexes.length; i++) {
+            if (i == position) {
+                continue;
+            }
+            int index = indexes[i];
+            result[j++] = removedSource >= 0 && index > removedSource ? index - 1 : index;
+        }
+        return result;
+    }
+
+    /**
+     * 分页模式，见setPagedSource(QuickPagedSource, int, int, int)
+     */
+    public void setPagedSource(QuickPagedSource<T> source, int pageSize) {
+        setPagedSource(source, pageSize, pageSize, 5);
+    }
+
+    /**
+     * 分页模式：条目总数和每页数据都在后台加载，绑定的位置附近prefetchDistance以内的页会提前加载，
+     * 最多保留maxPages页，离得远的页会被淘汰。
+     * 没加载的位置convert收到的item是null，要显示占位；多条目时QuickMultiSupport也要能处理null。
+     * 分页模式下不能add、remove、set，replaceAll、submitList、clear会退出分页模式
+     */
+    public void setPagedSource(QuickPagedSource<T> source, int pageSize, int prefetchDistance, int maxPages) {
+        // 还没完成的过滤作废，不能覆盖分页数据
+        leaveFilterMode();
+        leavePagedMode();
+        cancelPendingDiff();
+        mPagedList = new QuickPagedList<>(source, pageSize, prefetchDistance, maxPages, new QuickPagedList.Callback() {
+            @Override
+            public void onCountLoaded(int count) {
+                notifyData();
+            }
+
+            @Override
+            public void onPageLoaded(int start, int count) {
+                // 占位的条目重新绑定
+                notifyChanged(start, count, null);
+            }
+        });
+        mData = mPagedList;
+        notifyData();
+    }
+
+    /**
+     * 退出分页模式
+     *
+     * @return 之前是否是分页模式
+     */
+    private boolean leavePagedMode() {
+        if (mPagedList == null) {
+            return false;
+        }
+        mPagedList.detach();
+        mPagedList = null;
+        mData = QuickSnapshot.empty();
+        return true;
+    }
+
+    /**
+     * 直接修改了数据，还没完成的submitList结果作废，不再重新提交
+     */
+    private void cancelPendingDiff() {
+        mMaxScheduledGeneration++;
+    }
+
+    /**
+     * 设置submitList使用的比较器
+     */
+    public void setDiffCallback(QuickDiffCallback<T> callback) {
+        this.mDiffCallback = callback;
+    }
+
+    /**
+     * 提交新的数据，在后台线程计算差异，只刷新改变的条目。
+     * 计算完成前又提交了新数据，或者replaceAll、add等直接修改了数据的话，旧的结果直接丢弃。
+     * 没有设置比较器时等同于replaceAll
+     */
+    public void submitList(final List<T> newList) {
+        final int runGeneration = ++mMaxScheduledGeneration;
+        if (mDiffCallback == null || mPagedList != null || mFilterSource != null) {
+            replaceAll(newList == null ? QuickSnapshot.<T>empty() : newList);
+            return;
+        }
+        if (newList == null || newList.isEmpty()) {
+            if (!mData.isEmpty()) {
+                clear();
+            }
+            return;
+        }
+        if (mData.isEmpty()) {
+            addAll(newList);
+            return;
+        }
+        final int startVersion = mDataVersion;
+        // 快照不可变，后台线程直接用，不用复制
+        final List<T> oldData = mData;
+        final List<T> newData = QuickSnapshot.copyOf(newList);
+        final QuickDiffCallback<T> diffCallback = mDiffCallback;
+        QuickExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldData.size();
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newData.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                        return diffCallback.areItemsTheSame(oldData.get(oldItemPosition), newData.get(newItemPosition));
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                        return diffCallback.areContentsTheSame(oldData.get(oldItemPosition), newData.get(newItemPosition));
+                    }
+
+                    @Override
+                    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                        return diffCallback.getChangePayload(oldData.get(oldItemPosition), newData.get(newItemPosition));
+                    }
+                });
+                QuickExecutors.main().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mMaxScheduledGeneration != runGeneration) {
+                            // 已经有更新的数据提交了
+                            return;
+                        }
+                        if (mDataVersion != startVersion) {
+                            // 计算期间条目被update或分页刷新过，数据还是同一份，重新计算
+                            submitList(newData);
+                            return;
+                        }
+                        latchList(newData, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在主线程应用差异结果
+     */
+    private void latchList(List<T> newData, DiffUtil.DiffResult result) {
+        if (mFilterSource != null) {
+            // 计算期间开始了过滤，差异是按过滤前的数据算的，新数据交给过滤
+            refilter(QuickSnapshot.copyOf(newData));
+            return;
+        }
+        mData = newData;
+        beginUpdate();
+        try {
+            result.dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyInserted(position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyRemoved(position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyMoved(fromPosition, toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    notifyChanged(position, count, payload);
+                }
+            });
+        } finally {
+            if (mKeyIndex != null) {
+                // 差异是按中间状态的位置分发的，索引整体重建
+                mKeyIndex.invalidate();
+            }
+            endUpdate();
+        }
+        restartPrecompute();
+    }
+
+    /**
+     * 开始批量修改，期间的修改只记录不刷新，可以嵌套
+     */
+    public void beginUpdate() {
+        mUpdateDepth++;
+    }
+
+    /**
+     * 结束批量修改，合并记录的变化后一次性刷新
+     */
+    public void endUpdate() {
+        if (mUpdateDepth == 0) {
+            throw new IllegalStateException("endUpdate() without beginUpdate()");
+        }
+        if (--mUpdateDepth > 0 || mUpdateLog.isEmpty()) {
+            return;
+        }
+        if (isRecycler) {
+            mUpdateLog.dispatchTo(mUpdateReceiver);
+        } else {
+            // ListView只能整体刷新，一次事务只通知一次
+            mUpdateLog.clear();
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 批量修改数据，updates里面的修改合并后只刷新一次
+     */
+    public void batch(Runnable updates) {
+        beginUpdate();
+        try {
+            updates.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private void notifyData() {
+        mDataVersion++;
+        if (mKeyIndex != null) {
+            mKeyIndex.invalidate();
+        }
+        if (mUpdateDepth > 0) {
+            mUpdateLog.invalidate();
+        } else if (isRecycler) {
+            notifyDataSetChanged();
+        } else {
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 插入了条目，RecyclerView只刷新插入的位置，ListView只能整体刷新
+     */
+    private void notifyInserted(int position, int count) {
+        mDataVersion++;
+        if (mUpdateDepth > 0) {
+            mUpdateLog.insert(position, count);
+        } else if (isRecycler) {
+            mUpdateReceiver.onInserted(position, count);
+        } else {
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 移除了条目
+     */
+    private void notifyRemoved(int position, int count) {
+        mDataVersion++;
+        if (mUpdateDepth > 0) {
+            mUpdateLog.remove(position, count);
+        } else if (isRecycler) {
+            mUpdateReceiver.onRemoved(position, count);
+        } else {
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 条目内容改变了
+     */
+    private void notifyChanged(int position, int count, Object payload) {
+        mDataVersion++;
+        if (mUpdateDepth > 0) {
+            mUpdateLog.change(position, count, payload);
+        } else if (isRecycler) {
+            mUpdateReceiver.onChanged(position, count, payload);
+        } else {
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 条目移动了
+     */
+    private void notifyMoved(int fromPosition, int toPosition) {
+        mDataVersion++;
+        if (mUpdateDepth > 0) {
+            mUpdateLog.move(fromPosition, toPosition);
+        } else if (isRecycler) {
+            mUpdateReceiver.onMoved(fromPosition, toPosition);
+        } else {
+            notifyListDataSetChanged();
+        }
+    }
+
+    /**
+     * 把变化转成RecyclerView的刷新
+     */
+    private final QuickUpdateLog.Receiver mUpdateReceiver = new QuickUpdateLog.Receiver() {
+        @Override
+        public void onInserted(int position, int count) {
+            if (count == 1) {
+                notifyItemInserted(position);
+            } else {
+                notifyItemRangeInserted(position, count);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (count == 1) {
+                notifyItemRemoved(position);
+            } else {
+                notifyItemRangeRemoved(position, count);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            if (count == 1) {
+                notifyItemChanged(position, payload);
+            } else {
+                notifyItemRangeChanged(position, count, payload);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onInvalidated() {
+            notifyDataSetChanged();
+        }
+    };
+
+    public boolean contains(T elem) {
+        if (mKeyIndex != null && mPagedList == null) {
+            // 只查key集合，不用算位置
+            return mKeyIndex.contains(mData, mKeyIndex.keyOf(elem));
+        }
+        return indexOf(elem) >= 0;
+    }
+
+    /**
+     * 条目的位置，设置了QuickKeyProvider时按key查找
+     */
+    public int indexOf(T elem) {
+        if (mKeyIndex != null && mPagedList == null) {
+            return mKeyIndex.indexOf(mData, mKeyIndex.keyOf(elem));
+        }
+        return mData.indexOf(elem);
+    }
+
+    /**
+     * key对应条目的位置，没有设置QuickKeyProvider时返回-1
+     */
+    public int indexOfKey(Object key) {
+        if (mKeyIndex != null && mPagedList == null) {
+            return mKeyIndex.indexOf(mData, key);
+        }
+        return -1;
+    }
+
+    /**
+     * 设置条目的key，contains、remove、set按key用哈希查找，
+     * 同时开启稳定ID，RecyclerView和ListView都能根据ID复用条目和做动画。
+     * 要在setAdapter之前调用
+     */
+    public void setKeyProvider(QuickKeyProvider<T> provider) {
+        mKeyIndex = provider == null ? null : new QuickKeyIndex<>(provider);
+        if (!hasObservers()) {
+            setHasStableIds(provider != null);
+        }
+    }
+
+    /**
+     * 当前数据的快照，不可修改，可以直接传给其它Adapter共用
+     */
+    public List<T> getSnapshot() {
+        return mData;
+    }
+
+    /**
+     * 当前数据的可修改副本，修改副本不会影响Adapter
+     *
+     * @deprecated 原来返回的是内部的列表，现在数据是不可修改的快照。
+     * 只读请用{@link #getSnapshot()}，修改请用add、remove、set或replaceAll
+     */
+    @Deprecated
+    public List<T> getData() {
+        return new ArrayList<>(mData);
     }
 }
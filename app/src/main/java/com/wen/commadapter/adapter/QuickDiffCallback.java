@@ -0,0 +1,24 @@
+package com.wen.commadapter.adapter;
+
+/**
+ * submitList时比较新旧两个条目，在后台线程调用
+ */
+
+public abstract class QuickDiffCallback<T> {
+    /**
+     * 是否是同一个条目，一般比较ID
+     */
+    public abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+    /**
+     * 同一个条目的内容是否一样，一样就不用重新绑定
+     */
+    public abstract boolean areContentsTheSame(T oldItem, T newItem);
+
+    /**
+     * 内容改变时的局部刷新数据，默认没有
+     */
+    public Object getChangePayload(T oldItem, T newItem) {
+        return null;
+    }
+}
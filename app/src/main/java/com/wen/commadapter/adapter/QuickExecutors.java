@@ -0,0 +1,74 @@
+package com.wen.commadapter.adapter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 适配器内部共用的线程：后台线程池和主线程Handler
+ */
+
+public final class QuickExecutors {
+    private static final int CORE_SIZE = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+    private static volatile Executor sBackground;
+    private static volatile Handler sMainHandler;
+
+    private QuickExecutors() {
+    }
+
+    /**
+     * 后台线程池，用于计算差异、预加载等耗时操作
+     */
+    public static Executor background() {
+        if (sBackground == null) {
+            synchronized (QuickExecutors.class) {
+                if (sBackground == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(CORE_SIZE, CORE_SIZE,
+                            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new QuickThreadFactory());
+                    executor.allowCoreThreadTimeOut(true);
+                    sBackground = executor;
+                }
+            }
+        }
+        return sBackground;
+    }
+
+    /**
+     * 替换后台线程池，例如和项目里已有的线程池共用
+     */
+    public static void setBackground(Executor executor) {
+        sBackground = executor;
+    }
+
+    /**
+     * 主线程Handler
+     */
+    public static Handler main() {
+        if (sMainHandler == null) {
+            synchronized (QuickExecutors.class) {
+                if (sMainHandler == null) {
+                    sMainHandler = new Handler(Looper.getMainLooper());
+                }
+            }
+        }
+        return sMainHandler;
+    }
+
+    private static class QuickThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "QuickAdapter-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
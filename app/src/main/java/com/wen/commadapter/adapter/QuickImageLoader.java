@@ -0,0 +1,408 @@
+package com.wen.commadapter.adapter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.DisplayMetrics;
+import android.support.v4.view.ViewCompat;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import com.wen.commadapter.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步加载图片：在后台线程按控件大小缩小解码，结果放进按字节数限制的LruCache。
+ * 请求记在ImageView的TAG上，同一个控件换了图片或者同步设置了图片，之前的请求就作废，
+ * 还没测量的控件等布局完成后再加载
+ */
+
+public class QuickImageLoader {
+    private static volatile QuickImageLoader sDefault;
+    // 解码好的图片，按占用的字节数淘汰
+    private final LruCache<String, Bitmap> mCache;
+
+    /**
+     * @param maxBytes 缓存最多占用的字节数
+     */
+    public QuickImageLoader(int maxBytes) {
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * 默认的加载器，缓存最多占用八分之一的内存
+     */
+    public static QuickImageLoader getDefault() {
+        if (sDefault == null) {
+            synchronized (QuickImageLoader.class) {
+                if (sDefault == null) {
+                    sDefault = new QuickImageLoader((int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE));
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 替换默认的加载器，例如调整缓存大小
+     */
+    public static void setDefault(QuickImageLoader loader) {
+        sDefault = loader;
+    }
+
+    /**
+     * 图片来源，key相同就认为是同一张图片
+     */
+    public abstract static class Source {
+        private final String mKey;
+
+        protected Source(String key) {
+            this.mKey = key;
+        }
+
+        public final String getKey() {
+            return mKey;
+        }
+
+        /**
+         * 在后台线程解码，options.inJustDecodeBounds为true时只读取尺寸
+         */
+        protected abstract Bitmap decode(BitmapFactory.Options options) throws IOException;
+
+        public static Source resource(final Resources resources, final int resId) {
+            return new Source("res:" + resId) {
+                @Override
+                protected Bitmap decode(BitmapFactory.Options options) {
+                    return BitmapFactory.decodeResource(resources, resId, options);
+                }
+            };
+        }
+
+        public static Source file(final File file) {
+            return new Source("file:" + file.getAbsolutePath()) {
+                @Override
+                protected Bitmap decode(BitmapFactory.Options options) {
+                    return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+                }
+            };
+        }
+
+        /**
+         * 输入流要读两次，先读尺寸再解码，所以传入打开流的方法
+         */
+        public static Source stream(String key, final StreamOpener opener) {
+            return new Source("stream:" + key) {
+                @Override
+                protected Bitmap decode(BitmapFactory.Options options) throws IOException {
+                    InputStream in = opener.open();
+                    try {
+                        return BitmapFactory.decodeStream(in, null, options);
+                    } finally {
+                        in.close();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * 打开图片的输入流，在后台线程调用
+     */
+    public interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * 加载图片到控件，按控件测量后的大小解码。
+     * 还没测量、布局参数里也没有固定大小时，先显示占位图，等布局完成后再开始加载
+     *
+     * @param placeholderResId 加载完成之前显示的图片，0表示清空
+     */
+    public void load(ImageView imageView, Source source, int placeholderResId) {
+        int width = knownSize(imageView.getWidth(), imageView.getLayoutParams(), true);
+        int height = knownSize(imageView.getHeight(), imageView.getLayoutParams(), false);
+        if (width > 0 && height > 0) {
+            load(imageView, source, placeholderResId, width, height);
+            return;
+        }
+        Object tag = imageView.getTag(R.id.image_request);
+        if (tag instanceof LayoutWait) {
+            LayoutWait waiting = (LayoutWait) tag;
+            if (waiting.mSource.getKey().equals(source.getKey())) {
+                // 同一张图片已经在等布局
+                return;
+            }
+            waiting.cancel();
+        } else if (tag instanceof Request) {
+            ((Request) tag).cancel();
+        }
+        showPlaceholder(imageView, placeholderResId);
+        LayoutWait wait = new LayoutWait(imageView, source, placeholderResId);
+        imageView.setTag(R.id.image_request, wait);
+        wait.start();
+    }
+
+    /**
+     * 加载图片到控件，按指定的大小解码
+     */
+    public void load(ImageView imageView, Source source, int placeholderResId, int width, int height) {
+        String key = source.getKey() + "@" + width + "x" + height;
+        Object tag = imageView.getTag(R.id.image_request);
+        if (tag instanceof Request) {
+            Request pending = (Request) tag;
+            if (pending.mKey.equals(key) && !pending.mCancelled) {
+                // 同一张图片还在加载，不用重新开始
+                return;
+            }
+            pending.cancel();
+        } else if (tag instanceof LayoutWait) {
+            ((LayoutWait) tag).cancel();
+        }
+        Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+        showPlaceholder(imageView, placeholderResId);
+        Request request = new Request(imageView, source, key, width, height);
+        imageView.setTag(R.id.image_request, request);
+        request.mExecutor.execute(request);
+    }
+
+    /**
+     * 取消控件上还没完成的请求
+     */
+    public static void cancel(ImageView imageView) {
+        Object tag = imageView.getTag(R.id.image_request);
+        if (tag instanceof Request) {
+            ((Request) tag).cancel();
+        } else if (tag instanceof LayoutWait) {
+            ((LayoutWait) tag).cancel();
+        }
+    }
+
+    private static void showPlaceholder(ImageView imageView, int placeholderResId) {
+        if (placeholderResId != 0) {
+            imageView.setImageResource(placeholderResId);
+        } else {
+            imageView.setImageDrawable(null);
+        }
+    }
+
+    /**
+     * 缓存的图片
+     */
+    public Bitmap getCached(Source source, int width, int height) {
+        return mCache.get(source.getKey() + "@" + width + "x" + height);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * 缓存占用的字节数
+     */
+    public int getCacheBytes() {
+        return mCache.size();
+    }
+
+    /**
+     * 缩小的倍数，2的幂，缩小后的宽高都不小于要求的宽高
+     */
+    static int computeSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0 || reqWidth <= 0 || reqHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 已经知道的大小：测量过就用测量的，否则用布局参数里的固定大小，都没有返回0
+     */
+    private static int knownSize(int measured, ViewGroup.LayoutParams lp, boolean horizontal) {
+        if (measured > 0) {
+            return measured;
+        }
+        if (lp == null) {
+            return 0;
+        }
+        int size = horizontal ? lp.width : lp.height;
+        return size > 0 ? size : 0;
+    }
+
+    /**
+     * 等控件布局完成后再按测量的大小加载。
+     * 只在控件挂在窗口上时监听绘制，离开窗口就移除，不会让窗口一直引用这个控件
+     */
+    private final class LayoutWait implements ViewTreeObserver.OnPreDrawListener, View.OnAttachStateChangeListener {
+        private final ImageView mImageView;
+        private final Source mSource;
+        private final int mPlaceholderResId;
+        // 注册了绘制监听的ViewTreeObserver，没有注册时为null
+        private ViewTreeObserver mObserver;
+
+        LayoutWait(ImageView imageView, Source source, int placeholderResId) {
+            this.mImageView = imageView;
+            this.mSource = source;
+            this.mPlaceholderResId = placeholderResId;
+        }
+
+        void start() {
+            mImageView.addOnAttachStateChangeListener(this);
+            if (ViewCompat.isAttachedToWindow(mImageView)) {
+                listen();
+            }
+        }
+
+        void cancel() {
+            if (mImageView.getTag(R.id.image_request) == this) {
+                mImageView.setTag(R.id.image_request, null);
+            }
+            mImageView.removeOnAttachStateChangeListener(this);
+            unlisten();
+        }
+
+        private void listen() {
+            if (mObserver == null) {
+                mObserver = mImageView.getViewTreeObserver();
+                mObserver.addOnPreDrawListener(this);
+            }
+        }
+
+        private void unlisten() {
+            if (mObserver == null) {
+                return;
+            }
+            // 注册时的ViewTreeObserver可能已经合并到窗口的了
+            ViewTreeObserver observer = mObserver.isAlive() ? mObserver : mImageView.getViewTreeObserver();
+            observer.removeOnPreDrawListener(this);
+            mObserver = null;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            listen();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            // 重新挂到窗口上时继续等
+            unlisten();
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            if (mImageView.isLayoutRequested()) {
+                // 这个控件还没布局完
+                return true;
+            }
+            cancel();
+            ViewGroup.LayoutParams lp = mImageView.getLayoutParams();
+            int width = knownSize(mImageView.getWidth(), lp, true);
+            int height = knownSize(mImageView.getHeight(), lp, false);
+            if (width <= 0 || height <= 0) {
+                // 布局完还是0，例如wrap_content又没有图片，只能按屏幕大小
+                DisplayMetrics metrics = mImageView.getResources().getDisplayMetrics();
+                width = width > 0 ? width : metrics.widthPixels;
+                height = height > 0 ? height : metrics.heightPixels;
+            }
+            load(mImageView, mSource, mPlaceholderResId, width, height);
+            return true;
+        }
+    }
+
+    private final class Request implements Runnable {
+        private final ImageView mImageView;
+        private final Source mSource;
+        private final String mKey;
+        private final int mWidth;
+        private final int mHeight;
+        private final Executor mExecutor = QuickExecutors.background();
+        private volatile boolean mCancelled;
+
+        Request(ImageView imageView, Source source, String key, int width, int height) {
+            this.mImageView = imageView;
+            this.mSource = source;
+            this.mKey = key;
+            this.mWidth = width;
+            this.mHeight = height;
+        }
+
+        void cancel() {
+            mCancelled = true;
+            if (mImageView.getTag(R.id.image_request) == this) {
+                mImageView.setTag(R.id.image_request, null);
+            }
+            // 还在排队的直接从线程池里移除
+            if (mExecutor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) mExecutor).remove(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            Bitmap bitmap = mCache.get(mKey);
+            if (bitmap == null) {
+                bitmap = decode();
+                if (bitmap != null) {
+                    mCache.put(mKey, bitmap);
+                }
+            }
+            if (bitmap == null || mCancelled) {
+                return;
+            }
+            final Bitmap result = bitmap;
+            QuickExecutors.main().post(new Runnable() {
+                @Override
+                public void run() {
+                    // 控件已经换了别的图片，丢掉结果
+                    if (mCancelled || mImageView.getTag(R.id.image_request) != Request.this) {
+                        return;
+                    }
+                    mImageView.setTag(R.id.image_request, null);
+                    mImageView.setImageBitmap(result);
+                }
+            });
+        }
+
+        private Bitmap decode() {
+            try {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inJustDecodeBounds = true;
+                mSource.decode(options);
+                if (mCancelled) {
+                    return null;
+                }
+                options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight, mWidth, mHeight);
+                options.inJustDecodeBounds = false;
+                return mSource.decode(options);
+            } catch (IOException | OutOfMemoryError e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.wen.commadapter.adapter;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.ArrayDeque;
+
+/**
+ * 条目布局预加载池：页面加载时在后台线程提前创建View，
+ * 创建ViewHolder时直接取出来用，取不到再在主线程加载
+ */
+
+public class QuickInflatePool {
+    private static final String TAG = "QuickInflatePool";
+    private final LayoutInflater mInflater;
+    // 后台线程专用的LayoutInflater，LayoutInflater不是线程安全的
+    private final LayoutInflater mBackgroundInflater;
+    // 没有指定父布局时用来生成LayoutParams
+    private final ViewGroup mDefaultParent;
+    // 布局ID对应的预加载的View
+    private final SparseArray<ArrayDeque<View>> mViews = new SparseArray<>();
+    private final SparseIntArray mHits = new SparseIntArray();
+    private final SparseIntArray mMisses = new SparseIntArray();
+
+    /**
+     * 要在主线程创建
+     */
+    public QuickInflatePool(Context context) {
+        mInflater = LayoutInflater.from(context);
+        mBackgroundInflater = mInflater.cloneInContext(context);
+        mDefaultParent = new FrameLayout(context);
+    }
+
+    /**
+     * 在后台线程预加载count个布局。
+     * parent最好是将来要放条目的RecyclerView或ListView，这样LayoutParams才对
+     */
+    public void preInflate(final ViewGroup parent, final int layoutId, final int count) {
+        if (count <= 0) {
+            return;
+        }
+        final ViewGroup root = parent == null ? mDefaultParent : parent;
+        QuickExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    View view;
+                    try {
+                        synchronized (mBackgroundInflater) {
+                            view = mBackgroundInflater.inflate(layoutId, root, false);
+                        }
+                    } catch (RuntimeException e) {
+                        // 有的控件只能在主线程创建，剩下的用的时候再加载
+                        Log.w(TAG, "Failed to inflate layout in background, fallback to main thread", e);
+                        return;
+                    }
+                    synchronized (mViews) {
+                        ArrayDeque<View> views = mViews.get(layoutId);
+                        if (views == null) {
+                            views = new ArrayDeque<>();
+                            mViews.put(layoutId, views);
+                        }
+                        views.add(view);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 取一个预加载的View，没有就在当前线程加载
+     */
+    public View inflate(int layoutId, ViewGroup parent) {
+        View view = null;
+        synchronized (mViews) {
+            ArrayDeque<View> views = mViews.get(layoutId);
+            if (views != null) {
+                view = views.poll();
+            }
+            if (view != null) {
+                mHits.put(layoutId, mHits.get(layoutId) + 1);
+            } else {
+                mMisses.put(layoutId, mMisses.get(layoutId) + 1);
+            }
+        }
+        if (view == null) {
+            view = mInflater.inflate(layoutId, parent, false);
+        }
+        return view;
+    }
+
+    /**
+     * 用到预加载View的次数
+     */
+    public int getHitCount(int layoutId) {
+        synchronized (mViews) {
+            return mHits.get(layoutId);
+        }
+    }
+
+    /**
+     * 没有预加载View，只能同步加载的次数
+     */
+    public int getMissCount(int layoutId) {
+        synchronized (mViews) {
+            return mMisses.get(layoutId);
+        }
+    }
+
+    /**
+     * 还剩多少个预加载的View
+     */
+    public int getPooledCount(int layoutId) {
+        synchronized (mViews) {
+            ArrayDeque<View> views = mViews.get(layoutId);
+            return views == null ? 0 : views.size();
+        }
+    }
+
+    /**
+     * 清空预加载的View，页面销毁时调用
+     */
+    public void clear() {
+        synchronized (mViews) {
+            mViews.clear();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.wen.commadapter.adapter;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.SparseArray;
+
+/**
+ * 按viewType统计创建、绑定的耗时和次数，可以一直开着上报线上数据。
+ * 耗时按2的幂分桶记录，百分位是桶的上限，误差在2倍以内
+ */
+
+public class QuickMetrics {
+    /**
+     * 创建ViewHolder，包括加载布局
+     */
+    public static final int PHASE_CREATE = 0;
+    /**
+     * convert绑定数据
+     */
+    public static final int PHASE_BIND = 1;
+    /**
+     * ListView的getView整体耗时
+     */
+    public static final int PHASE_GET_VIEW = 2;
+    static final int PHASE_COUNT = 3;
+    private static final String[] TRACE_NAMES = {"QuickAdapter#create", "QuickAdapter#bind", "QuickAdapter#getView"};
+    // 耗时的桶，第i个桶是[2^i, 2^(i+1))纳秒
+    private static final int BUCKET_COUNT = 40;
+
+    private final boolean mTraceEnabled;
+    private final SparseArray<TypeStats> mStats = new SparseArray<>();
+    private Listener mListener;
+
+    /**
+     * 每次记录耗时的回调，在记录的线程调用
+     */
+    public interface Listener {
+        void onSample(int phase, int viewType, long durationNanos);
+    }
+
+    public QuickMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param traceEnabled 是否同时输出android.os.Trace，API 18以上才有效
+     */
+    public QuickMetrics(boolean traceEnabled) {
+        this.mTraceEnabled = traceEnabled && Build.VERSION.SDK_INT >= 18;
+    }
+
+    public void setListener(Listener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * 开始计时
+     */
+    long begin(int phase) {
+        if (mTraceEnabled) {
+            Trace.beginSection(TRACE_NAMES[phase]);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束计时
+     */
+    void end(int phase, int viewType, long start) {
+        long duration = System.nanoTime() - start;
+        if (mTraceEnabled) {
+            Trace.endSection();
+        }
+        synchronized (this) {
+            obtain(viewType).phases[phase].record(duration);
+        }
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onSample(phase, viewType, duration);
+        }
+    }
+
+    /**
+     * ListView复用了convertView
+     */
+    synchronized void countReuse(int viewType) {
+        obtain(viewType).reused++;
+    }
+
+    /**
+     * ListView重新加载了布局
+     */
+    synchronized void countInflate(int viewType) {
+        obtain(viewType).inflated++;
+    }
+
+    private TypeStats obtain(int viewType) {
+        TypeStats stats = mStats.get(viewType);
+        if (stats == null) {
+            stats = new TypeStats();
+            mStats.put(viewType, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 当前统计数据的副本
+     */
+    public synchronized Snapshot snapshot() {
+        int size = mStats.size();
+        int[] viewTypes = new int[size];
+        TypeStats[] stats = new TypeStats[size];
+        for (int i = 0; i < size; i++) {
+            viewTypes[i] = mStats.keyAt(i);
+            stats[i] = mStats.valueAt(i).copy();
+        }
+        return new Snapshot(viewTypes, stats);
+    }
+
+    /**
+     * 清空统计
+     */
+    public synchronized void reset() {
+        mStats.clear();
+    }
+
+    /**
+     * 某一阶段的统计
+     */
+    public static final class PhaseStats {
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        void record(long nanos) {
+            mCount++;
+            mTotalNanos += nanos;
+            if (nanos > mMaxNanos) {
+                mMaxNanos = nanos;
+            }
+            int bucket = nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+            mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+        }
+
+        PhaseStats copy() {
+            PhaseStats copy = new PhaseStats();
+            System.arraycopy(mBuckets, 0, copy.mBuckets, 0, BUCKET_COUNT);
+            copy.mCount = mCount;
+            copy.mTotalNanos = mTotalNanos;
+            copy.mMaxNanos = mMaxNanos;
+            return copy;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * 百分位耗时，percentile在0到1之间，比如0.99
+         */
+        public long getPercentileNanos(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(mCount * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= Math.max(1, target)) {
+                    return Math.min(mMaxNanos, (1L << (i + 1)) - 1);
+                }
+            }
+            return mMaxNanos;
+        }
+    }
+
+    /**
+     * 一种viewType的统计
+     */
+    public static final class TypeStats {
+        final PhaseStats[] phases = new PhaseStats[PHASE_COUNT];
+        int reused;
+        int inflated;
+
+        TypeStats() {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                phases[i] = new PhaseStats();
+            }
+        }
+
+        TypeStats copy() {
+            TypeStats copy = new TypeStats();
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                copy.phases[i] = phases[i].copy();
+            }
+            copy.reused = reused;
+            copy.inflated = inflated;
+            return copy;
+        }
+
+        public PhaseStats getPhase(int phase) {
+            return phases[phase];
+        }
+
+        /**
+         * ListView复用convertView的次数
+         */
+        public int getReusedCount() {
+            return reused;
+        }
+
+        /**
+         * ListView重新加载布局的次数
+         */
+        public int getInflatedCount() {
+            return inflated;
+        }
+    }
+
+    /**
+     * 统计数据的副本，可以在其它线程上报
+     */
+    public static final class Snapshot {
+        private final int[] mViewTypes;
+        private final TypeStats[] mStats;
+
+        Snapshot(int[] viewTypes, TypeStats[] stats) {
+            this.mViewTypes = viewTypes;
+            this.mStats = stats;
+        }
+
+        /**
+         * 有统计数据的viewType
+         */
+        public int[] getViewTypes() {
+            return mViewTypes.clone();
+        }
+
+        /**
+         * viewType的统计，没有返回null
+         */
+        public TypeStats get(int viewType) {
+            for (int i = 0; i < mViewTypes.length; i++) {
+                if (mViewTypes[i] == viewType) {
+                    return mStats[i];
+                }
+            }
+            return null;
+        }
+    }
+}
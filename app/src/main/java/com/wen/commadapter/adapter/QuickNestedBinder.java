@@ -0,0 +1,141 @@
+package com.wen.commadapter.adapter;
+
+import android.content.Context;
+import android.os.Parcelable;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.wen.commadapter.R;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 条目里嵌套的横向列表：所有内层列表共用一个回收池，
+ * 外层预取时顺带预取内层的前几个条目，按条目key保存和恢复每个内层列表的滚动位置
+ *
+ * @param <C> 内层列表的数据类型
+ */
+
+public class QuickNestedBinder<C> {
+    private final AdapterFactory<C> mFactory;
+    private final RecyclerView.RecycledViewPool mPool;
+    private final int mInitialPrefetchCount;
+    // 条目key对应的滚动状态，只保留最近的
+    private final Map<Object, Parcelable> mStates;
+
+    /**
+     * 创建内层列表的Adapter，数据在绑定时再设置
+     */
+    public interface AdapterFactory<C> {
+        QuickAdapter<C> create(Context context);
+    }
+
+    /**
+     * @param pool                 所有内层列表共用的回收池
+     * @param initialPrefetchCount 外层预取这一行时，内层先准备好的条目数，一般是一屏能看到的个数
+     * @param maxStates            最多保存多少个内层列表的滚动位置
+     */
+    public QuickNestedBinder(AdapterFactory<C> factory, RecyclerView.RecycledViewPool pool,
+                             int initialPrefetchCount, final int maxStates) {
+        this.mFactory = factory;
+        this.mPool = pool;
+        this.mInitialPrefetchCount = initialPrefetchCount;
+        this.mStates = new LinkedHashMap<Object, Parcelable>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Parcelable> eldest) {
+                return size() > maxStates;
+            }
+        };
+    }
+
+    public QuickNestedBinder(AdapterFactory<C> factory, int initialPrefetchCount) {
+        this(factory, new QuickRecycledViewPool(), initialPrefetchCount, 200);
+    }
+
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mPool;
+    }
+
+    /**
+     * 在外层的convert里调用，把数据绑定到内层列表
+     *
+     * @param viewId   内层RecyclerView的ID
+     * @param key      外层条目的key，用来保存滚动位置
+     * @param children 内层列表的数据
+     */
+    public void bind(QuickViewHolder holder, int viewId, Object key, List<C> children) {
+        RecyclerView recyclerView = holder.getView(viewId);
+        QuickAdapter<C> adapter = obtainAdapter(recyclerView);
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        Binding binding = (Binding) recyclerView.getTag(R.id.nested_key);
+        if (binding == null) {
+            binding = new Binding();
+            recyclerView.setTag(R.id.nested_key, binding);
+        } else if (binding.key != null) {
+            // replaceAll会把数据包成快照，所以按传进来的列表判断是不是同一份数据
+            if (binding.key.equals(key) && binding.children == children) {
+                // 同一行同一份数据，保持现在的位置，不重新绑定
+                return;
+            }
+            // 这个列表之前显示的是别的条目，或者数据换了，先记下位置
+            mStates.put(binding.key, layoutManager.onSaveInstanceState());
+        }
+        binding.key = key;
+        binding.children = children;
+        adapter.replaceAll(children);
+        Parcelable state = mStates.get(key);
+        if (state != null) {
+            layoutManager.onRestoreInstanceState(state);
+        } else {
+            layoutManager.scrollToPositionWithOffset(0, 0);
+        }
+    }
+
+    /**
+     * 外层ViewHolder回收时调用，提前记下滚动位置
+     */
+    public void save(QuickViewHolder holder, int viewId) {
+        RecyclerView recyclerView = holder.getView(viewId);
+        Binding binding = (Binding) recyclerView.getTag(R.id.nested_key);
+        if (binding != null && binding.key != null && recyclerView.getLayoutManager() != null) {
+            mStates.put(binding.key, recyclerView.getLayoutManager().onSaveInstanceState());
+        }
+    }
+
+    /**
+     * 内层列表当前绑定的条目key和传进来的数据
+     */
+    private static class Binding {
+        Object key;
+        List<?> children;
+    }
+
+    /**
+     * 第一次绑定时设置内层列表：横向布局、共用回收池、预取个数、Adapter只创建一次
+     */
+    private QuickAdapter<C> obtainAdapter(RecyclerView recyclerView) {
+        RecyclerView.Adapter current = recyclerView.getAdapter();
+        if (current instanceof QuickAdapter && recyclerView.getRecycledViewPool() == mPool
+                && recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            return (QuickAdapter<C>) current;
+        }
+        LinearLayoutManager layoutManager = new LinearLayoutManager(recyclerView.getContext(),
+                LinearLayoutManager.HORIZONTAL, false);
+        layoutManager.setInitialPrefetchItemCount(mInitialPrefetchCount);
+        // 内层列表回收时ViewHolder放回共用的池子，给其它行用
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(mPool);
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setNestedScrollingEnabled(false);
+        QuickAdapter<C> adapter = mFactory.create(recyclerView.getContext());
+        if (mPool instanceof QuickRecycledViewPool) {
+            // 不同的内层Adapter按布局ID区分条目，共用池子时不会拿错
+            adapter.setSharedPool((QuickRecycledViewPool) mPool);
+        }
+        recyclerView.setAdapter(adapter);
+        return adapter;
+    }
+}
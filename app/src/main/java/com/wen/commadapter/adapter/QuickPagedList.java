@@ -0,0 +1,181 @@
+package com.wen.commadapter.adapter;
+
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * 分页加载的只读列表：只保留当前位置附近的几页，
+ * 没加载的位置返回null作为占位，绑定到附近时在后台加载
+ */
+
+public class QuickPagedList<T> extends AbstractList<T> {
+    private static final String TAG = "QuickPagedList";
+    private final QuickPagedSource<T> mSource;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final int mMaxPages;
+    private final Callback mCallback;
+    // 已经加载的页，只在主线程访问
+    private final SparseArray<List<T>> mPages = new SparseArray<>();
+    // 正在加载的页
+    private final SparseBooleanArray mLoading = new SparseBooleanArray();
+    private int mTotalCount;
+    // 最后一次访问的页，淘汰时离它最远的先淘汰
+    private int mLastPage;
+    private boolean mDetached;
+
+    /**
+     * 加载结果的回调，在主线程调用
+     */
+    interface Callback {
+        void onCountLoaded(int count);
+
+        void onPageLoaded(int start, int count);
+    }
+
+    QuickPagedList(QuickPagedSource<T> source, int pageSize, int prefetchDistance, int maxPages, Callback callback) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.mSource = source;
+        this.mPageSize = pageSize;
+        this.mPrefetchDistance = Math.max(0, prefetchDistance);
+        // 至少要放得下预取范围内的页
+        int windowPages = (mPrefetchDistance * 2) / pageSize + 2;
+        this.mMaxPages = Math.max(maxPages, windowPages);
+        this.mCallback = callback;
+        loadCount();
+    }
+
+    private void loadCount() {
+        QuickExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final int count;
+                try {
+                    count = mSource.getTotalCount();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to load total count", e);
+                    return;
+                }
+                QuickExecutors.main().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDetached) {
+                            return;
+                        }
+                        mTotalCount = count;
+                        mCallback.onCountLoaded(count);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 没有加载的位置返回null
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= mTotalCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mTotalCount);
+        }
+        List<T> page = mPages.get(index / mPageSize);
+        if (page == null) {
+            return null;
+        }
+        int offset = index % mPageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return mTotalCount;
+    }
+
+    /**
+     * 这个位置的数据是否已经加载
+     */
+    public boolean isLoaded(int index) {
+        return mPages.get(index / mPageSize) != null;
+    }
+
+    /**
+     * 绑定某个位置时调用，加载预取范围内还没加载的页
+     */
+    void loadAround(int index) {
+        if (mDetached || mTotalCount == 0) {
+            return;
+        }
+        int lastPage = (mTotalCount - 1) / mPageSize;
+        int first = Math.max(0, index - mPrefetchDistance) / mPageSize;
+        int last = Math.min(lastPage, Math.min(mTotalCount - 1, index + mPrefetchDistance) / mPageSize);
+        mLastPage = index / mPageSize;
+        for (int page = first; page <= last; page++) {
+            if (mPages.get(page) == null && !mLoading.get(page)) {
+                loadPage(page);
+            }
+        }
+    }
+
+    private void loadPage(final int page) {
+        mLoading.put(page, true);
+        final int start = page * mPageSize;
+        final int count = Math.min(mPageSize, mTotalCount - start);
+        QuickExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                List<T> items = null;
+                try {
+                    items = mSource.loadPage(start, count);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to load page " + page, e);
+                }
+                final List<T> result = items;
+                QuickExecutors.main().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLoading.delete(page);
+                        if (mDetached || result == null) {
+                            // 加载失败的页下次绑定时再加载
+                            return;
+                        }
+                        mPages.put(page, result);
+                        trimPages();
+                        mCallback.onPageLoaded(start, Math.min(count, result.size()));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 页数超过上限时，淘汰离最后访问位置最远的页
+     */
+    private void trimPages() {
+        while (mPages.size() > mMaxPages) {
+            int farthestIndex = 0;
+            int farthestDistance = -1;
+            for (int i = 0, size = mPages.size(); i < size; i++) {
+                int distance = Math.abs(mPages.keyAt(i) - mLastPage);
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthestIndex = i;
+                }
+            }
+            mPages.removeAt(farthestIndex);
+        }
+    }
+
+    /**
+     * 不再使用，之后加载完成的结果都丢弃
+     */
+    void detach() {
+        mDetached = true;
+        mPages.clear();
+    }
+}
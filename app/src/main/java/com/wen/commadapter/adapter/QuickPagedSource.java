@@ -0,0 +1,19 @@
+package com.wen.commadapter.adapter;
+
+import java.util.List;
+
+/**
+ * 分页数据源，方法都在后台线程调用
+ */
+
+public interface QuickPagedSource<T> {
+    /**
+     * 数据总数
+     */
+    int getTotalCount();
+
+    /**
+     * 加载从start开始的count条数据
+     */
+    List<T> loadPage(int start, int count);
+}
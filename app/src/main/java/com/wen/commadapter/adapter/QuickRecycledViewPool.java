@@ -0,0 +1,101 @@
+package com.wen.commadapter.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * 多个RecyclerView、多个QuickAdapter共用的回收池。
+ * 使用这个回收池的QuickAdapter，viewType就是布局ID，所以不同列表里相同布局的条目可以互相复用
+ */
+
+public class QuickRecycledViewPool extends RecyclerView.RecycledViewPool {
+    private static final int DEFAULT_MAX_SCRAP = 5;
+    private final SparseIntArray mBudgets = new SparseIntArray();
+    private final SparseIntArray mCreated = new SparseIntArray();
+    private final SparseIntArray mReused = new SparseIntArray();
+    private final SparseIntArray mPooled = new SparseIntArray();
+    private final SparseIntArray mDropped = new SparseIntArray();
+
+    /**
+     * 设置某个布局最多缓存多少个ViewHolder
+     */
+    public QuickRecycledViewPool setBudget(int layoutId, int max) {
+        mBudgets.put(layoutId, max);
+        setMaxRecycledViews(layoutId, max);
+        return this;
+    }
+
+    /**
+     * 布局的缓存上限
+     */
+    public int getBudget(int layoutId) {
+        return mBudgets.get(layoutId, DEFAULT_MAX_SCRAP);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+        RecyclerView.ViewHolder holder = super.getRecycledView(viewType);
+        if (holder != null) {
+            increment(mReused, viewType);
+        }
+        return holder;
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        int viewType = scrap.getItemViewType();
+        int before = getRecycledViewCount(viewType);
+        super.putRecycledView(scrap);
+        // 超出上限的ViewHolder会被直接丢掉
+        increment(getRecycledViewCount(viewType) > before ? mPooled : mDropped, viewType);
+    }
+
+    /**
+     * QuickAdapter新建ViewHolder时调用
+     */
+    void onCreated(int viewType) {
+        increment(mCreated, viewType);
+    }
+
+    /**
+     * 新建ViewHolder的次数
+     */
+    public int getCreatedCount(int layoutId) {
+        return mCreated.get(layoutId);
+    }
+
+    /**
+     * 从回收池复用ViewHolder的次数
+     */
+    public int getReusedCount(int layoutId) {
+        return mReused.get(layoutId);
+    }
+
+    /**
+     * 放进回收池的次数
+     */
+    public int getPooledCount(int layoutId) {
+        return mPooled.get(layoutId);
+    }
+
+    /**
+     * 回收池满了被丢掉的次数，经常丢的话可以调大setBudget
+     */
+    public int getDroppedCount(int layoutId) {
+        return mDropped.get(layoutId);
+    }
+
+    /**
+     * 清空统计
+     */
+    public void resetCounters() {
+        mCreated.clear();
+        mReused.clear();
+        mPooled.clear();
+        mDropped.clear();
+    }
+
+    private static void increment(SparseIntArray counters, int key) {
+        counters.put(key, counters.get(key) + 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.wen.commadapter.adapter;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+/**
+ * 一种条目里一个文本控件的排版参数：画笔和宽度，以及按条目key缓存的排版结果。
+ * 在后台线程排版，API 14就有的StaticLayout，不依赖PrecomputedText
+ */
+
+public class QuickTextSpec {
+    private final int mViewId;
+    // 复制一份，后台排版时不会和控件同时修改
+    private final TextPaint mPaint;
+    private final int mWidth;
+    private final LruCache<Object, Layout> mLayouts;
+
+    /**
+     * @param viewId   文本控件ID，要是QuickTextView才能用排版结果
+     * @param paint    排版用的画笔，一般是QuickTextView.getPaint()
+     * @param width    文本区域的宽度
+     * @param maxItems 最多缓存多少个条目的排版结果
+     */
+    public QuickTextSpec(int viewId, TextPaint paint, int width, int maxItems) {
+        this.mViewId = viewId;
+        this.mPaint = new TextPaint(paint);
+        this.mWidth = width;
+        this.mLayouts = new LruCache<>(maxItems);
+    }
+
+    public QuickTextSpec(int viewId, TextPaint paint, int width) {
+        this(viewId, paint, width, 200);
+    }
+
+    /**
+     * 按控件现在的画笔和宽度生成，控件要已经测量过
+     */
+    public static QuickTextSpec from(QuickTextView view) {
+        return new QuickTextSpec(view.getId(), view.getPaint(), view.getTextWidth());
+    }
+
+    public int getViewId() {
+        return mViewId;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * 缓存的排版结果，文本已经变了返回null。
+     * 带样式的文本只认同一个对象，TextExtractor每次都新建的话不会命中
+     */
+    public Layout get(Object key, CharSequence text) {
+        Layout layout = mLayouts.get(key);
+        if (layout != null && text != null && !QuickTextView.sameText(layout.getText(), text)) {
+            return null;
+        }
+        return layout;
+    }
+
+    /**
+     * 缓存的排版结果，不检查文本
+     */
+    Layout get(Object key) {
+        return mLayouts.get(key);
+    }
+
+    /**
+     * 排版并缓存，已经有同样文本的结果就不再排版。可以在后台线程调用
+     */
+    public Layout precompute(Object key, CharSequence text) {
+        Layout layout = get(key, text);
+        if (layout != null) {
+            return layout;
+        }
+        // 同一个画笔不能在几个线程同时用
+        synchronized (mPaint) {
+            layout = new StaticLayout(text, mPaint, mWidth, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+        }
+        mLayouts.put(key, layout);
+        return layout;
+    }
+
+    /**
+     * 清空缓存，例如字体大小变了
+     */
+    public void clear() {
+        mLayouts.evictAll();
+    }
+}
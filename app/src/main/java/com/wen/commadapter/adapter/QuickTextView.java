@@ -0,0 +1,200 @@
+package com.wen.commadapter.adapter;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * 直接绘制Layout的文本控件，可以用后台排版好的Layout，绑定时不用在主线程测量和排版。
+ * 没有排版好的Layout时和普通文本一样，测量时自己排版
+ */
+
+public class QuickTextView extends View {
+    private static final int[] ATTRS = {android.R.attr.textSize, android.R.attr.textColor};
+    private final TextPaint mPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    private ColorStateList mTextColor;
+    private CharSequence mText = "";
+    private Layout mLayout;
+
+    public QuickTextView(Context context) {
+        this(context, null);
+    }
+
+    public QuickTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public QuickTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mPaint.density = getResources().getDisplayMetrics().density;
+        TypedArray a = context.obtainStyledAttributes(attrs, ATTRS, defStyleAttr, 0);
+        mPaint.setTextSize(a.getDimension(0, TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                getResources().getDisplayMetrics())));
+        mTextColor = a.getColorStateList(1);
+        a.recycle();
+        if (mTextColor == null) {
+            mTextColor = ColorStateList.valueOf(0xff000000);
+        }
+        mPaint.setColor(mTextColor.getDefaultColor());
+    }
+
+    /**
+     * 排版用的画笔，注册预排版时用它的参数
+     */
+    public TextPaint getPaint() {
+        return mPaint;
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * 设置文本，测量时再排版
+     */
+    public void setText(CharSequence text) {
+        if (text == null) {
+            text = "";
+        }
+        if (mLayout != null && sameText(mText, text)) {
+            return;
+        }
+        mText = text;
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 直接使用排版好的Layout，宽度和画笔要和这个控件一致
+     */
+    public void setLayout(Layout layout) {
+        if (mLayout == layout) {
+            return;
+        }
+        boolean sameSize = mLayout != null && mLayout.getWidth() == layout.getWidth()
+                && mLayout.getHeight() == layout.getHeight();
+        mText = layout.getText();
+        mLayout = layout;
+        // 大小没变只要重画
+        if (!sameSize) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * 当前的Layout，还没排版返回null
+     */
+    public Layout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * 文本区域的宽度，预排版的宽度要和它一致
+     */
+    public int getTextWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    /**
+     * 是否是同样的文本：String比较内容，其它CharSequence可能字符一样但样式不同，只认同一个对象
+     */
+    static boolean sameText(CharSequence a, CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        return a instanceof String && b instanceof String && a.equals(b);
+    }
+
+    public void setTextColor(int color) {
+        setTextColor(ColorStateList.valueOf(color));
+    }
+
+    public void setTextColor(ColorStateList colors) {
+        if (colors == null) {
+            throw new NullPointerException();
+        }
+        mTextColor = colors;
+        mPaint.setColor(colors.getColorForState(getDrawableState(), colors.getDefaultColor()));
+        invalidate();
+    }
+
+    public ColorStateList getTextColors() {
+        return mTextColor;
+    }
+
+    /**
+     * 当前状态下的文字颜色
+     */
+    public int getCurrentTextColor() {
+        return mPaint.getColor();
+    }
+
+    public void setTextSize(float px) {
+        if (mPaint.getTextSize() != px) {
+            mPaint.setTextSize(px);
+            mLayout = null;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        if (mTextColor != null && mTextColor.isStateful()) {
+            mPaint.setColor(mTextColor.getColorForState(getDrawableState(), mTextColor.getDefaultColor()));
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        int padding = getPaddingLeft() + getPaddingRight();
+        int textWidth;
+        if (widthMode == MeasureSpec.EXACTLY) {
+            textWidth = widthSize - padding;
+        } else {
+            int desired = (int) Math.ceil(Layout.getDesiredWidth(mText, mPaint));
+            textWidth = widthMode == MeasureSpec.AT_MOST ? Math.min(desired, widthSize - padding) : desired;
+        }
+        textWidth = Math.max(textWidth, 0);
+        if (mLayout == null || mLayout.getWidth() != textWidth) {
+            mLayout = new StaticLayout(mText, mPaint, textWidth, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+        }
+        int width = textWidth + padding;
+        int height = mLayout.getHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        TextPaint paint = mLayout.getPaint();
+        if (paint == mPaint) {
+            mLayout.draw(canvas);
+        } else {
+            // 预排版的Layout用的是QuickTextSpec的画笔，颜色和按下、选中等状态以控件为准
+            synchronized (paint) {
+                paint.setColor(mPaint.getColor());
+                paint.drawableState = getDrawableState();
+                mLayout.draw(canvas);
+            }
+        }
+        canvas.restore();
+    }
+}
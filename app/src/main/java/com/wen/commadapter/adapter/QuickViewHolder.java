@@ -2,6 +2,7 @@ package com.wen.commadapter.adapter;
 
 import android.graphics.Bitmap;
 import android.support.v7.widget.RecyclerView;
+import android.text.Layout;
 import android.text.TextUtils;
 import android.util.SparseArray;
 import android.view.View;
@@ -9,7 +10,11 @@ import android.widget.Checkable;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.lang.ref.WeakReference;
+import com.wen.commadapter.R;
+import com.wen.commadapter.core.QuickBindCache;
+
+import java.io.File;
+import java.util.ArrayList;
 
 
 /**
@@ -17,8 +22,33 @@ import java.lang.ref.WeakReference;
  */
 
 public class QuickViewHolder extends RecyclerView.ViewHolder {
-    private SparseArray<WeakReference<View>> mViews;
+    // 布局里的控件，按QuickViewIndex的位置存放
+    private final QuickViewIndex mViewIndex;
+    private final View[] mViews;
+    // 不在布局索引里的控件，比如后来动态添加的
+    private SparseArray<View> mExtraViews;
     private int mLayoutId;
+    // 创建或者正在使用这个ViewHolder的Adapter
+    private Object mOwner;
+    // 控件属性最后设置的值，开启记忆之后才有
+    private QuickBindCache mBindCache;
+    private int mSkippedWrites;
+    private int mAppliedWrites;
+    // 最后一次绑定的位置，ListView和悬浮的ViewHolder没有getAdapterPosition时用
+    private int mBindPosition = RecyclerView.NO_POSITION;
+    // 接上点击监听时Adapter的标记，不一样就要重新接
+    private Object mClickWiring;
+    // 当前条目预排版好的文本
+    private SparseArray<Layout> mPrecomputed;
+    // 异步加载过图片的控件，回收时取消还没完成的请求
+    private ArrayList<ImageView> mAsyncImages;
+
+    private static final int PROP_TEXT = 1;
+    private static final int PROP_TEXT_COLOR = 2;
+    private static final int PROP_VISIBLE = 3;
+    private static final int PROP_CHECKED = 4;
+    private static final int PROP_BACKGROUND = 5;
+    private static final int PROP_IMAGE = 6;
 
     public QuickViewHolder(View itemView) {
         this(itemView, -1);
@@ -26,8 +56,9 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
 
     public QuickViewHolder(View itemView, int layoutId) {
         super(itemView);
-        mViews = new SparseArray<>();
         this.mLayoutId = layoutId;
+        mViewIndex = QuickViewIndex.obtain(layoutId, itemView);
+        mViews = mViewIndex.bind(itemView);
 
     }
 
@@ -35,8 +66,152 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
         return mLayoutId;
     }
 
+    Object getOwner() {
+        return mOwner;
+    }
+
+    /**
+     * 换到另一个Adapter使用，清掉记忆的值、统计和上一个Adapter接上的点击监听
+     */
+    void adopt(Object owner) {
+        if (mOwner != null && mOwner != owner) {
+            // 新的Adapter没有设置点击事件的话不会重新接，点击会交给上一个Adapter按它的数据处理
+            resetClicks();
+        }
+        mOwner = owner;
+        mClickWiring = null;
+        clearMemo();
+        resetWriteCounters();
+    }
+
+    /**
+     * 清掉条目和接过监听的子控件的点击、长按监听
+     */
+    private void resetClicks() {
+        resetClick(itemView);
+        for (View view : mViews) {
+            if (view != null && view != itemView && view.getTag(R.id.view_holder) != null) {
+                resetClick(view);
+            }
+        }
+        if (mExtraViews != null) {
+            for (int i = 0, size = mExtraViews.size(); i < size; i++) {
+                View view = mExtraViews.valueAt(i);
+                if (view.getTag(R.id.view_holder) != null) {
+                    resetClick(view);
+                }
+            }
+        }
+    }
+
+    private static void resetClick(View view) {
+        view.setOnClickListener(null);
+        view.setOnLongClickListener(null);
+        view.setTag(R.id.view_holder, null);
+    }
+
+    /**
+     * 最后一次绑定的位置，没有绑定过返回RecyclerView.NO_POSITION
+     */
+    public int getBindPosition() {
+        return mBindPosition;
+    }
+
+    void setBindPosition(int position) {
+        mBindPosition = position;
+    }
+
+    Object getClickWiring() {
+        return mClickWiring;
+    }
+
+    void setClickWiring(Object wiring) {
+        mClickWiring = wiring;
+    }
+
+    /**
+     * 开启后，设置的值和上次一样就不再调用View的方法，避免多余的requestLayout、invalidate。
+     * 在外面直接修改了控件的话，要调用clearMemo
+     */
+    public QuickViewHolder setMemoizeEnabled(boolean enabled) {
+        if (enabled && mBindCache == null) {
+            mBindCache = new QuickBindCache();
+        } else if (!enabled) {
+            mBindCache = null;
+        }
+        return this;
+    }
+
+    /**
+     * 清除记忆的值，下次一定会设置
+     */
+    public QuickViewHolder clearMemo() {
+        if (mBindCache != null) {
+            mBindCache.clear();
+        }
+        return this;
+    }
+
+    /**
+     * 因为值没变而跳过的设置次数
+     */
+    public int getSkippedWrites() {
+        return mSkippedWrites;
+    }
+
+    /**
+     * 真正设置到View的次数
+     */
+    public int getAppliedWrites() {
+        return mAppliedWrites;
+    }
+
+    public void resetWriteCounters() {
+        mSkippedWrites = 0;
+        mAppliedWrites = 0;
+    }
+
+    /**
+     * int属性是否需要设置
+     */
+    private boolean shouldWrite(int viewId, int property, int value) {
+        if (mBindCache == null) {
+            return true;
+        }
+        return countWrite(mBindCache.putInt(QuickBindCache.key(viewId, property), value));
+    }
+
+    /**
+     * 对象属性是否需要设置
+     */
+    private boolean shouldWrite(int viewId, int property, Object value) {
+        if (mBindCache == null) {
+            return true;
+        }
+        return countWrite(mBindCache.putObject(QuickBindCache.key(viewId, property), value));
+    }
+
+    private boolean countWrite(boolean changed) {
+        if (changed) {
+            mAppliedWrites++;
+        } else {
+            mSkippedWrites++;
+        }
+        return changed;
+    }
+
     /**
-     * 设置条目的点击事件
+     * 属性被其它方式修改了，忘掉记忆的值
+     */
+    private void forget(int viewId, int property) {
+        if (mBindCache != null) {
+            mBindCache.remove(QuickBindCache.key(viewId, property));
+        }
+    }
+
+    /**
+     * 设置条目的点击事件，在convert里new监听的话每次绑定都会创建对象，
+     * 建议用QuickAdapter.setOnItemClickListener
      */
     public QuickViewHolder setOnClickListener(View.OnClickListener listener) {
         itemView.setOnClickListener(listener);
@@ -52,7 +227,7 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
     }
 
     /**
-     * 设置View的点击事件
+     * 设置View的点击事件，建议用QuickAdapter.setOnItemChildClickListener
      *
      * @return
      */
@@ -75,34 +250,82 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      * 根据ID获取条目里面的View
      */
     public <T extends View> T getView(int viewId) {
-        WeakReference<View> viewWeakReference = mViews.get(viewId);
-        View view = null;
-        if (viewWeakReference == null) {
+        int slot = mViewIndex.indexOf(viewId);
+        if (slot >= 0 && mViews[slot] != null) {
+            return (T) mViews[slot];
+        }
+        if (mExtraViews == null) {
+            mExtraViews = new SparseArray<>();
+        }
+        View view = mExtraViews.get(viewId);
+        if (view == null) {
             view = itemView.findViewById(viewId);
             if (view != null) {
-                mViews.put(viewId, new WeakReference<>(view));
+                mExtraViews.put(viewId, view);
             }
-        } else {
-            view = viewWeakReference.get();
         }
         return (T) view;
     }
 
     public QuickViewHolder setText(int viewId, CharSequence text) {
-        TextView tv = getView(viewId);
+        View view = getView(viewId);
+        if (view instanceof QuickTextView) {
+            setQuickText(viewId, (QuickTextView) view, text);
+            return this;
+        }
+        TextView tv = (TextView) view;
         if (tv != null && !TextUtils.isEmpty(text)) {
-            tv.setText(text);
+            // 只有String不可变，其它CharSequence可能带样式或者被修改，每次都设置
+            if (text instanceof String) {
+                if (shouldWrite(viewId, PROP_TEXT, text)) {
+                    tv.setText(text);
+                }
+            } else {
+                forget(viewId, PROP_TEXT);
+                tv.setText(text);
+            }
         }
         return this;
     }
 
+    /**
+     * 有后台排版好的Layout，并且文本和宽度都一致就直接用，不在主线程排版
+     */
+    private void setQuickText(int viewId, QuickTextView view, CharSequence text) {
+        forget(viewId, PROP_TEXT);
+        Layout layout = mPrecomputed != null ? mPrecomputed.get(viewId) : null;
+        if (layout != null && QuickTextView.sameText(layout.getText(), text)
+                && (view.getWidth() == 0 || layout.getWidth() == view.getTextWidth())) {
+            view.setLayout(layout);
+        } else {
+            view.setText(text);
+        }
+    }
+
+    /**
+     * 绑定前由Adapter放入这个条目预排版的结果，没有时放null
+     */
+    void setPrecomputed(int viewId, Layout layout) {
+        if (mPrecomputed == null) {
+            if (layout == null) {
+                return;
+            }
+            mPrecomputed = new SparseArray<>();
+        }
+        mPrecomputed.put(viewId, layout);
+    }
+
     /**
      * 设置图片背景颜色
      */
     public QuickViewHolder setTextColor(int viewId, int color) {
-        TextView view = getView(viewId);
-        if (view != null) {
-            view.setTextColor(color);
+        View view = getView(viewId);
+        if (view != null && shouldWrite(viewId, PROP_TEXT_COLOR, color)) {
+            if (view instanceof QuickTextView) {
+                ((QuickTextView) view).setTextColor(color);
+            } else {
+                ((TextView) view).setTextColor(color);
+            }
         }
         return this;
     }
@@ -112,7 +335,9 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      */
     public QuickViewHolder setVisible(int viewId, int visible) {
         View view = getView(viewId);
-        view.setVisibility(visible);
+        if (shouldWrite(viewId, PROP_VISIBLE, visible)) {
+            view.setVisibility(visible);
+        }
         return this;
     }
 
@@ -121,7 +346,9 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      */
     public QuickViewHolder setChecked(int viewId, boolean checked) {
         Checkable view = getView(viewId);
-        view.setChecked(checked);
+        if (shouldWrite(viewId, PROP_CHECKED, checked ? 1 : 0)) {
+            view.setChecked(checked);
+        }
         return this;
     }
 
@@ -130,7 +357,9 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      */
     public QuickViewHolder setBackgroundRes(int viewId, int backgroundRes) {
         View view = getView(viewId);
-        view.setBackgroundResource(backgroundRes);
+        if (shouldWrite(viewId, PROP_BACKGROUND, backgroundRes)) {
+            view.setBackgroundResource(backgroundRes);
+        }
         return this;
     }
 
@@ -139,7 +368,11 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      */
     public QuickViewHolder setImageResource(int viewId, int imageResId) {
         ImageView imageView = getView(viewId);
-        imageView.setImageResource(imageResId);
+        // 同步设置的图片优先，之前的异步请求作废
+        QuickImageLoader.cancel(imageView);
+        if (shouldWrite(viewId, PROP_IMAGE, imageResId)) {
+            imageView.setImageResource(imageResId);
+        }
         return this;
     }
 
@@ -148,9 +381,56 @@ public class QuickViewHolder extends RecyclerView.ViewHolder {
      */
     public QuickViewHolder setImageBitmap(int viewId, Bitmap bitmap) {
         ImageView imageView = getView(viewId);
+        QuickImageLoader.cancel(imageView);
+        forget(viewId, PROP_IMAGE);
         imageView.setImageBitmap(bitmap);
         return this;
     }
 
+    /**
+     * 异步加载图片，在后台按控件大小解码，条目换了图片之后之前的结果会被丢掉
+     *
+     * @param placeholderResId 加载完成之前显示的图片，0表示清空
+     */
+    public QuickViewHolder setImageAsync(int viewId, QuickImageLoader.Source source, int placeholderResId) {
+        ImageView imageView = getView(viewId);
+        forget(viewId, PROP_IMAGE);
+        if (mAsyncImages == null) {
+            mAsyncImages = new ArrayList<>(2);
+        }
+        if (!mAsyncImages.contains(imageView)) {
+            mAsyncImages.add(imageView);
+        }
+        QuickImageLoader.getDefault().load(imageView, source, placeholderResId);
+        return this;
+    }
+
+    /**
+     * 取消异步加载还没完成的图片，包括还在等布局的，ViewHolder被回收时调用
+     */
+    public void cancelAsyncImages() {
+        if (mAsyncImages == null) {
+            return;
+        }
+        for (int i = 0, size = mAsyncImages.size(); i < size; i++) {
+            QuickImageLoader.cancel(mAsyncImages.get(i));
+        }
+    }
+
+    /**
+     * 异步加载图片资源
+     */
+    public QuickViewHolder setImageResourceAsync(int viewId, int imageResId, int placeholderResId) {
+        return setImageAsync(viewId, QuickImageLoader.Source.resource(itemView.getResources(), imageResId),
+                placeholderResId);
+    }
+
+    /**
+     * 异步加载图片文件
+     */
+    public QuickViewHolder setImageFileAsync(int viewId, File file, int placeholderResId) {
+        return setImageAsync(viewId, QuickImageLoader.Source.file(file), placeholderResId);
+    }
+
 
 }
@@ -0,0 +1,126 @@
+package com.wen.commadapter.adapter;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 同一个布局里控件ID的索引，第一次加载布局时记录所有ID，
+ * 之后每个ViewHolder只要遍历一次View树就能把控件放到数组里
+ */
+
+final class QuickViewIndex {
+    // 布局ID对应的索引，只在主线程使用
+    private static final SparseArray<QuickViewIndex> sIndexes = new SparseArray<>();
+
+    // 哈希表，值是控件在数组里的位置+1，0表示空
+    private final int[] mKeys;
+    private final int[] mSlots;
+    private final int mMask;
+    private final int mCount;
+
+    private QuickViewIndex(List<Integer> ids) {
+        mCount = ids.size();
+        int capacity = 4;
+        while (capacity < mCount * 2) {
+            capacity <<= 1;
+        }
+        mKeys = new int[capacity];
+        mSlots = new int[capacity];
+        mMask = capacity - 1;
+        for (int i = 0; i < mCount; i++) {
+            int id = ids.get(i);
+            int index = hash(id) & mMask;
+            while (mSlots[index] != 0) {
+                index = (index + 1) & mMask;
+            }
+            mKeys[index] = id;
+            mSlots[index] = i + 1;
+        }
+    }
+
+    /**
+     * 获取布局的索引，布局ID无效时只给这个View树单独建一个
+     */
+    static QuickViewIndex obtain(int layoutId, View root) {
+        if (layoutId <= 0) {
+            return create(root);
+        }
+        QuickViewIndex index = sIndexes.get(layoutId);
+        if (index == null) {
+            index = create(root);
+            sIndexes.put(layoutId, index);
+        }
+        return index;
+    }
+
+    private static QuickViewIndex create(View root) {
+        List<Integer> ids = new ArrayList<>();
+        collectIds(root, ids);
+        return new QuickViewIndex(ids);
+    }
+
+    /**
+     * 和findViewById一样先序遍历，重复的ID只记第一个
+     */
+    private static void collectIds(View view, List<Integer> ids) {
+        int id = view.getId();
+        if (id != View.NO_ID && !ids.contains(id)) {
+            ids.add(id);
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0, count = group.getChildCount(); i < count; i++) {
+                collectIds(group.getChildAt(i), ids);
+            }
+        }
+    }
+
+    /**
+     * 遍历一次View树，按索引把控件放到数组里
+     */
+    View[] bind(View root) {
+        View[] views = new View[mCount];
+        fill(root, views);
+        return views;
+    }
+
+    private void fill(View view, View[] views) {
+        int id = view.getId();
+        if (id != View.NO_ID) {
+            int slot = indexOf(id);
+            if (slot >= 0 && views[slot] == null) {
+                views[slot] = view;
+            }
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0, count = group.getChildCount(); i < count; i++) {
+                fill(group.getChildAt(i), views);
+            }
+        }
+    }
+
+    /**
+     * 控件ID在数组里的位置，没有返回-1
+     */
+    int indexOf(int viewId) {
+        int index = hash(viewId) & mMask;
+        int slot;
+        while ((slot = mSlots[index]) != 0) {
+            if (mKeys[index] == viewId) {
+                return slot - 1;
+            }
+            index = (index + 1) & mMask;
+        }
+        return -1;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
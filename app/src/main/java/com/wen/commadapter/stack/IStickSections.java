@@ -0,0 +1,11 @@
+package com.wen.commadapter.stack;
+
+/**
+ * 多个分组悬浮的接口定义
+ */
+public interface IStickSections {
+    /**
+     * 所有分组头的位置，从小到大排序
+     */
+    int[] getStickPositions();
+}
@@ -0,0 +1,149 @@
+package com.wen.commadapter.stack;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+/**
+ * RecyclerView滚动状态的跟踪：根据onScrolled的偏移量累加滚动距离，
+ * 根据可见条目的高度估算总高度，读取时不用反射也不分配对象
+ */
+public class QuickScrollTracker extends RecyclerView.OnScrollListener {
+    private int mOffset;
+    private int mRange;
+    private int mExtent;
+    private int mFirstVisiblePosition = RecyclerView.NO_POSITION;
+    private boolean mValid;
+    // 数据变了但还没有滚动，下次读取前要重新计算
+    private boolean mStale;
+    // 不缓存条目View，数据变化后它们可能已经被回收或绑定到别的位置
+    private RecyclerView mRecyclerView;
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        update(recyclerView, dy);
+    }
+
+    /**
+     * 数据变化时调用，下次{@link #refresh(RecyclerView)}时重新计算
+     */
+    public void invalidate() {
+        mStale = true;
+    }
+
+    /**
+     * 数据变化后没有滚动时重新计算可见位置
+     */
+    public void refresh(RecyclerView recyclerView) {
+        if (mStale) {
+            update(recyclerView, 0);
+        }
+    }
+
+    private void update(RecyclerView recyclerView, int dy) {
+        mRecyclerView = recyclerView;
+        mStale = false;
+        int paddingTop = recyclerView.getPaddingTop();
+        int height = recyclerView.getHeight();
+        int childCount = recyclerView.getChildCount();
+        int firstPosition = RecyclerView.NO_POSITION;
+        int firstTop = 0;
+        int heightSum = 0;
+        int measured = 0;
+        for (int i = 0; i < childCount; i++) {
+            View child = recyclerView.getChildAt(i);
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            heightSum += child.getHeight();
+            measured++;
+            // 部分可见的也算可见
+            if (child.getBottom() > 0 && child.getTop() < height
+                    && (firstPosition == RecyclerView.NO_POSITION || position < firstPosition)) {
+                firstPosition = position;
+                firstTop = child.getTop();
+            }
+        }
+        mFirstVisiblePosition = firstPosition;
+        mExtent = height - paddingTop - recyclerView.getPaddingBottom();
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+        int itemCount = adapter == null ? 0 : adapter.getItemCount();
+        if (measured == 0 || itemCount == 0) {
+            mOffset = 0;
+            mRange = mExtent;
+            mValid = measured > 0 || itemCount == 0;
+            return;
+        }
+        int spanCount = getSpanCount(recyclerView.getLayoutManager());
+        float averageHeight = (float) heightSum * spanCount / measured;
+        int rows = (itemCount + spanCount - 1) / spanCount;
+        if (firstPosition == 0) {
+            // 在顶部时可以算出准确的偏移
+            mOffset = paddingTop - firstTop;
+        } else if (dy != 0 && mValid) {
+            mOffset += dy;
+        } else {
+            // 没有滚动距离的跳转，比如scrollToPosition，按平均高度估算
+            mOffset = Math.round(firstPosition / spanCount * averageHeight) + paddingTop - firstTop;
+        }
+        mOffset = Math.max(0, mOffset);
+        mRange = Math.max(Math.round(rows * averageHeight) + paddingTop + recyclerView.getPaddingBottom(),
+                mOffset + mExtent);
+        mValid = true;
+    }
+
+    private static int getSpanCount(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof GridLayoutManager) {
+            return ((GridLayoutManager) layoutManager).getSpanCount();
+        }
+        if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+        return 1;
+    }
+
+    /**
+     * 是否已经跟踪到滚动状态
+     */
+    public boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * 已经滚动的距离
+     */
+    public int getVerticalScrollOffset() {
+        return mOffset;
+    }
+
+    /**
+     * 估算的内容总高度
+     */
+    public int getVerticalScrollRange() {
+        return mRange;
+    }
+
+    /**
+     * 可见区域的高度
+     */
+    public int getVerticalScrollExtent() {
+        return mExtent;
+    }
+
+    /**
+     * 第一个可见条目的位置
+     */
+    public int getFirstVisiblePosition() {
+        return mFirstVisiblePosition;
+    }
+
+    /**
+     * 当前某个位置的条目，不可见返回null；每次从LayoutManager查找，不会拿到已经回收的View
+     */
+    public View findViewByPosition(int position) {
+        RecyclerView.LayoutManager layoutManager = mRecyclerView == null ? null : mRecyclerView.getLayoutManager();
+        return layoutManager == null ? null : layoutManager.findViewByPosition(position);
+    }
+}
@@ -1,18 +1,18 @@
 package com.wen.commadapter.stack;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
-import android.support.v7.widget.GridLayoutManager;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 
 import com.wen.commadapter.R;
 
-import java.lang.reflect.Method;
+import java.util.Arrays;
 
 
 /**
@@ -26,6 +26,20 @@ public class StickFrameLayout extends FrameLayout {
     private View mStickView;
     // 偏移量
     private int mOffset = 0;
+    // 每种类型的悬浮ViewHolder
+    private final SparseArray<RecyclerView.ViewHolder> mStickHolders = new SparseArray<>();
+    // 当前绑定的分组头位置
+    private int mBoundPosition = RecyclerView.NO_POSITION;
+    private int[] mSinglePosition;
+    private RecyclerView.Adapter mObservedAdapter;
+    // 滚动状态
+    private final QuickScrollTracker mScrollTracker = new QuickScrollTracker();
+    // 悬浮布局是否需要在这一帧绘制前更新
+    private boolean mStickDirty;
+    // 调试用的重新布局统计，记下最近几次的时间，读取时再数最近一秒的
+    private static final int RELAYOUT_HISTORY = 128;
+    private final long[] mRelayoutTimes = new long[RELAYOUT_HISTORY];
+    private int mRelayoutCount;
 
     public StickFrameLayout(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -56,57 +70,245 @@ public class StickFrameLayout extends FrameLayout {
         mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
-                StickFrameLayout.this.onScrolled();
+                // 先更新滚动状态，悬浮逻辑直接读取
+                mScrollTracker.onScrolled(recyclerView, dx, dy);
+                scheduleStickUpdate();
             }
         });
     }
 
     /**
-     * 滚动监听事件处理
+     * 标记悬浮布局需要更新，一帧之内多次滚动只在绘制前处理一次。
+     * onScrolled在惯性滚动的动画回调里，post到下一帧会比列表慢一帧，所以在同一帧的onPreDraw里更新
+     */
+    private void scheduleStickUpdate() {
+        if (!mStickDirty) {
+            mStickDirty = true;
+            // 没有滚动时也要有一帧来触发onPreDraw
+            invalidate();
+        }
+    }
+
+    private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mRecyclerView == null) {
+                return true;
+            }
+            if (mObservedAdapter != null && mObservedAdapter != mRecyclerView.getAdapter()) {
+                // Adapter换了，不再监听旧的
+                releaseAdapter();
+                mStickDirty = true;
+            }
+            if (!mStickDirty) {
+                return true;
+            }
+            mStickDirty = false;
+            onScrolled();
+            // 悬浮布局要重新布局的话，这次先不画，布局完在同一帧再画
+            return !mStickyLayout.isLayoutRequested();
+        }
+    };
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+        // 重新添加到窗口后要重新监听数据
+        mStickDirty = true;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(mPreDrawListener);
+        mStickDirty = false;
+        // Adapter可能比这个布局活得久，不能让它一直引用这里
+        releaseAdapter();
+    }
+
+    /**
+     * 滚动监听事件处理，每帧最多一次，只有状态变了才修改布局
      */
     private void onScrolled() {
         RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
-        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
-        if (adapter == null || layoutManager == null || adapter.getItemCount() <= 0) {
+        if (adapter == null) {
+            releaseAdapter();
             return;
         }
-        if (adapter instanceof IStick) {
-            IStick stick = (IStick) adapter;
-            int stickPosition = stick.getStickPosition();
-            if (mStickView == null) {
-                // 根据类型创建ViewHolder
-                mStickyLayout.setTag(R.id.view_position, stickPosition);
-                RecyclerView.ViewHolder viewHolder = adapter.onCreateViewHolder(mStickyLayout, stick.getStickViewType());
-                // 根据位置绑定View
-                adapter.onBindViewHolder(viewHolder, stickPosition);
-                mStickView = viewHolder.itemView;
-                mStickyLayout.addView(mStickView);
-            }
-            //这是是处理第一次打开时，吸顶布局已经添加到StickyLayout，但StickyLayout的高依然为0的情况。
-            if (mStickyLayout.getChildCount() > 0 && mStickyLayout.getHeight() == 0) {
-                mStickyLayout.requestLayout();
+        observeAdapter(adapter);
+        if (adapter.getItemCount() <= 0) {
+            return;
+        }
+        int[] stickPositions = getStickPositions(adapter);
+        if (stickPositions == null || stickPositions.length == 0) {
+            return;
+        }
+        // 1. 判断要不要偏移
+        applyOffset();
+        // 2. 二分查找当前的分组：第一个可见条目之前最近的分组头，数据变了先重新计算可见位置
+        mScrollTracker.refresh(mRecyclerView);
+        int firstVisibleItemPosition = mScrollTracker.getFirstVisiblePosition();
+        int index = floorIndex(stickPositions, firstVisibleItemPosition);
+        // 偏移区域盖住了后面的分组头，也算进入了那个分组
+        while (index + 1 < stickPositions.length) {
+            View nextView = mScrollTracker.findViewByPosition(stickPositions[index + 1]);
+            if (nextView == null || mOffset < nextView.getTop()) {
+                break;
             }
-            //设置StickyLayout显示或者隐藏。
-            int firstVisibleItemPosition = findFirstVisibleItemPosition(mRecyclerView);
-            View topView = layoutManager.findViewByPosition(stickPosition);
-
-            // 1. 判断要不要偏移
-            changeOffset(mOffset);
-            // 1. 大于悬浮的位置都显示
-            if (firstVisibleItemPosition >= stickPosition) {
-                mStickyLayout.setVisibility(View.VISIBLE);
-            } else if (topView != null) {
-                // 2. 偏移大于悬浮到顶部的距离就显示
-                boolean isShow = mOffset >= topView.getTop();
-                if (isShow) {
-                    mStickyLayout.setVisibility(View.VISIBLE);
-                } else {
-                    mStickyLayout.setVisibility(View.GONE);
+            index++;
+        }
+        if (index < 0) {
+            applyVisibility(View.GONE);
+            return;
+        }
+        // 3. 分组变了才重新绑定
+        int stickPosition = stickPositions[index];
+        bindStickView(adapter, stickPosition);
+        //这是是处理第一次打开时，吸顶布局已经添加到StickyLayout，但StickyLayout的高依然为0的情况。
+        if (mStickyLayout.getChildCount() > 0 && mStickyLayout.getHeight() == 0 && !mStickyLayout.isLayoutRequested()) {
+            mStickyLayout.requestLayout();
+            countRelayout();
+        }
+        applyVisibility(View.VISIBLE);
+        // 4. 下一个分组头把当前的顶上去，用平移不用重新布局
+        float translationY = 0;
+        if (index + 1 < stickPositions.length) {
+            View nextView = mScrollTracker.findViewByPosition(stickPositions[index + 1]);
+            if (nextView != null) {
+                int distance = nextView.getTop() - mOffset;
+                int stickyHeight = mStickyLayout.getHeight();
+                if (distance < stickyHeight) {
+                    translationY = distance - stickyHeight;
                 }
-            } else {
-                mStickyLayout.setVisibility(View.GONE);
             }
         }
+        if (mStickyLayout.getTranslationY() != translationY) {
+            mStickyLayout.setTranslationY(translationY);
+        }
+    }
+
+    /**
+     * 悬浮的位置，单个悬浮的IStick也当作只有一个分组
+     */
+    private int[] getStickPositions(RecyclerView.Adapter adapter) {
+        if (adapter instanceof IStickSections) {
+            return ((IStickSections) adapter).getStickPositions();
+        }
+        if (adapter instanceof IStick) {
+            int stickPosition = ((IStick) adapter).getStickPosition();
+            if (mSinglePosition == null || mSinglePosition[0] != stickPosition) {
+                mSinglePosition = new int[]{stickPosition};
+            }
+            return mSinglePosition;
+        }
+        return null;
+    }
+
+    /**
+     * 每种类型只创建一个悬浮ViewHolder，分组变了才重新绑定
+     */
+    private void bindStickView(RecyclerView.Adapter adapter, int stickPosition) {
+        int viewType = adapter instanceof IStick && !(adapter instanceof IStickSections)
+                ? ((IStick) adapter).getStickViewType() : adapter.getItemViewType(stickPosition);
+        RecyclerView.ViewHolder viewHolder = mStickHolders.get(viewType);
+        if (viewHolder == null) {
+            // 根据类型创建ViewHolder
+            mStickyLayout.setTag(R.id.view_position, stickPosition);
+            viewHolder = adapter.onCreateViewHolder(mStickyLayout, viewType);
+            mStickHolders.put(viewType, viewHolder);
+        }
+        if (mStickView != viewHolder.itemView) {
+            mStickyLayout.removeAllViews();
+            mStickView = viewHolder.itemView;
+            mStickyLayout.addView(mStickView);
+            mBoundPosition = RecyclerView.NO_POSITION;
+            countRelayout();
+        }
+        if (mBoundPosition != stickPosition) {
+            // 根据位置绑定View
+            adapter.onBindViewHolder(viewHolder, stickPosition);
+            mBoundPosition = stickPosition;
+        }
+    }
+
+    /**
+     * 数据变了，悬浮的条目要重新绑定
+     */
+    private void observeAdapter(RecyclerView.Adapter adapter) {
+        if (mObservedAdapter == adapter) {
+            return;
+        }
+        releaseAdapter();
+        mObservedAdapter = adapter;
+        adapter.registerAdapterDataObserver(mDataObserver);
+        resetStickViews();
+    }
+
+    /**
+     * 取消数据监听
+     */
+    private void releaseAdapter() {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mDataObserver);
+            mObservedAdapter = null;
+        }
+    }
+
+    private void resetStickViews() {
+        mStickHolders.clear();
+        mStickyLayout.removeAllViews();
+        mStickView = null;
+        mBoundPosition = RecyclerView.NO_POSITION;
+    }
+
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            invalidateStick();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            invalidateStick();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            invalidateStick();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidateStick();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidateStick();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidateStick();
+        }
+    };
+
+    /**
+     * 下次滚动时重新绑定悬浮条目
+     */
+    private void invalidateStick() {
+        mBoundPosition = RecyclerView.NO_POSITION;
+        mScrollTracker.invalidate();
+        scheduleStickUpdate();
+    }
+
+    /**
+     * 小于等于position的最后一个位置的下标，没有返回-1
+     */
+    private static int floorIndex(int[] positions, int position) {
+        int index = Arrays.binarySearch(positions, position);
+        return index >= 0 ? index : -index - 2;
     }
 
     /**
@@ -116,37 +318,43 @@ public class StickFrameLayout extends FrameLayout {
      */
     public void setStickyVisibility(int visible) {
         if (mStickyLayout != null) {
-            mStickyLayout.setVisibility(visible);
+            applyVisibility(visible);
         }
     }
 
     /**
-     * 找第一个可见条目的位置
+     * 显示状态变了才修改，GONE和VISIBLE切换会重新布局
      */
-    private int findFirstVisibleItemPosition(RecyclerView recyclerView) {
-        int firstVisibleItem = -1;
-        RecyclerView.LayoutManager layout = recyclerView.getLayoutManager();
-        if (layout != null) {
-            if (layout instanceof GridLayoutManager) {
-                firstVisibleItem = ((GridLayoutManager) layout).findFirstVisibleItemPosition();
-            } else if (layout instanceof LinearLayoutManager) {
-                firstVisibleItem = ((LinearLayoutManager) layout).findFirstVisibleItemPosition();
-            } else if (layout instanceof StaggeredGridLayoutManager) {
-                int[] firstPositions = new int[((StaggeredGridLayoutManager) layout).getSpanCount()];
-                ((StaggeredGridLayoutManager) layout).findFirstVisibleItemPositions(firstPositions);
-                firstVisibleItem = getMin(firstPositions);
-            }
+    private void applyVisibility(int visibility) {
+        if (mStickyLayout.getVisibility() != visibility) {
+            mStickyLayout.setVisibility(visibility);
+            countRelayout();
         }
-        return firstVisibleItem;
     }
 
-    private int getMin(int[] arr) {
-        int min = arr[0];
-        for (int x = 1; x < arr.length; x++) {
-            if (arr[x] < min)
-                min = arr[x];
+    private void countRelayout() {
+        mRelayoutTimes[mRelayoutCount % RELAYOUT_HISTORY] = SystemClock.uptimeMillis();
+        mRelayoutCount++;
+    }
+
+    /**
+     * 调试用：悬浮层引起的重新布局次数
+     */
+    public int getRelayoutCount() {
+        return mRelayoutCount;
+    }
+
+    /**
+     * 调试用：到现在为止最近一秒悬浮层引起的重新布局次数，停止后会降到0，最多统计RELAYOUT_HISTORY次
+     */
+    public int getRelayoutsPerSecond() {
+        long since = SystemClock.uptimeMillis() - 1000;
+        int recorded = Math.min(mRelayoutCount, RELAYOUT_HISTORY);
+        int count = 0;
+        while (count < recorded && mRelayoutTimes[(mRelayoutCount - 1 - count) % RELAYOUT_HISTORY] > since) {
+            count++;
         }
-        return min;
+        return count;
     }
 
     /**
@@ -164,34 +372,39 @@ public class StickFrameLayout extends FrameLayout {
      * 设置偏移量
      */
     public void setStickOffset(int offset) {
-        changeOffset(offset);
+        if (mOffset != offset) {
+            mOffset = offset;
+            if (mStickyLayout != null) {
+                applyOffset();
+                scheduleStickUpdate();
+            }
+        }
     }
 
     /**
-     * 改变偏移量
+     * 偏移量变了才修改布局参数
      */
-    private void changeOffset(int offset) {
-        if (mOffset != offset) {
-            if (mStickyLayout != null) {
-                mOffset = offset;
-                LayoutParams lp = (LayoutParams) mStickyLayout.getLayoutParams();
-                lp.topMargin = offset;
-                mStickyLayout.setLayoutParams(lp);
-            }
+    private void applyOffset() {
+        LayoutParams lp = (LayoutParams) mStickyLayout.getLayoutParams();
+        if (lp.topMargin != mOffset) {
+            lp.topMargin = mOffset;
+            mStickyLayout.setLayoutParams(lp);
+            countRelayout();
         }
     }
 
 
+    /**
+     * 滚动状态，悬浮逻辑和滚动条都用它
+     */
+    public QuickScrollTracker getScrollTracker() {
+        return mScrollTracker;
+    }
+
     @Override
     protected int computeVerticalScrollOffset() {
-        if (mRecyclerView != null) {
-            try {
-                Method method = View.class.getDeclaredMethod("computeVerticalScrollOffset");
-                method.setAccessible(true);
-                return (int) method.invoke(mRecyclerView);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        if (mRecyclerView != null && mScrollTracker.isValid()) {
+            return mScrollTracker.getVerticalScrollOffset();
         }
         return super.computeVerticalScrollOffset();
     }
@@ -199,28 +412,16 @@ public class StickFrameLayout extends FrameLayout {
 
     @Override
     protected int computeVerticalScrollRange() {
-        if (mRecyclerView != null) {
-            try {
-                Method method = View.class.getDeclaredMethod("computeVerticalScrollRange");
-                method.setAccessible(true);
-                return (int) method.invoke(mRecyclerView);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        if (mRecyclerView != null && mScrollTracker.isValid()) {
+            return mScrollTracker.getVerticalScrollRange();
         }
         return super.computeVerticalScrollRange();
     }
 
     @Override
     protected int computeVerticalScrollExtent() {
-        if (mRecyclerView != null) {
-            try {
-                Method method = View.class.getDeclaredMethod("computeVerticalScrollExtent");
-                method.setAccessible(true);
-                return (int) method.invoke(mRecyclerView);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        if (mRecyclerView != null && mScrollTracker.isValid()) {
+            return mScrollTracker.getVerticalScrollExtent();
         }
         return super.computeVerticalScrollExtent();
     }
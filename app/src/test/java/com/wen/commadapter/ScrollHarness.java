@@ -0,0 +1,202 @@
+package com.wen.commadapter;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.AbsListView;
+
+import com.wen.commadapter.adapter.QuickAdapter;
+import com.wen.commadapter.adapter.QuickViewHolder;
+import com.wen.commadapter.core.QuickMultiSupport;
+import com.wen.commadapter.core.QuickViewTypeRegistry;
+import com.wen.commadapter.stack.IStickSections;
+
+import org.robolectric.Robolectric;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 滚动测试的公共部分：生成多条目数据、统计加载和绑定次数的Adapter、
+ * 固定尺寸布局和按步长滚动
+ */
+
+public final class ScrollHarness {
+    public static final int WIDTH = 1080;
+    public static final int HEIGHT = 1920;
+    // 每次滚动的距离，比最矮的条目还小，不会跳过条目
+    public static final int STEP = 40;
+    // 每隔多少条一个分组头
+    public static final int SECTION = 20;
+    public static final int VIEW_TYPES = 2;
+
+    private ScrollHarness() {
+    }
+
+    /**
+     * 多条目数据：每SECTION条一个占满一行的MultiBean分组头，其它是MultiBean1
+     */
+    public static List<MainActivity.IViewType> createData(int size) {
+        List<MainActivity.IViewType> data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i % SECTION == 0) {
+                MultiBean bean = new MultiBean();
+                bean.name = "section " + i;
+                data.add(bean);
+            } else {
+                MultiBean1 bean = new MultiBean1();
+                bean.name = "item " + i;
+                data.add(bean);
+            }
+        }
+        return data;
+    }
+
+    public static QuickMultiSupport<MainActivity.IViewType> createSupport() {
+        return new QuickViewTypeRegistry<MainActivity.IViewType>()
+                .register(MultiBean.class, 1, R.layout.item_list1, true)
+                .register(MultiBean1.class, 2, R.layout.item_list);
+    }
+
+    /**
+     * 按固定尺寸测量和布局
+     */
+    public static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 一直往下滚到底，每一步都走一次frame
+     *
+     * @return 滚动的步数
+     */
+    public static int sweep(RecyclerView recyclerView) {
+        int steps = 0;
+        while (recyclerView.canScrollVertically(1)) {
+            recyclerView.scrollBy(0, STEP);
+            frame(recyclerView);
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * 执行掉下一帧的回调，再分发绘制前的回调
+     */
+    public static void frame(View view) {
+        Robolectric.flushForegroundThreadScheduler();
+        view.getViewTreeObserver().dispatchOnPreDraw();
+    }
+
+    /**
+     * 往下滚动distance
+     */
+    public static void sweep(RecyclerView recyclerView, int distance) {
+        for (int scrolled = 0; scrolled < distance && recyclerView.canScrollVertically(1); scrolled += STEP) {
+            recyclerView.scrollBy(0, STEP);
+            frame(recyclerView);
+        }
+    }
+
+    /**
+     * ListView一直往下滚到底
+     */
+    public static int sweep(AbsListView listView) {
+        int steps = 0;
+        while (listView.canScrollList(1)) {
+            listView.scrollListBy(STEP);
+            Robolectric.flushForegroundThreadScheduler();
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * 当前线程分配的字节数，JVM不支持时返回-1
+     */
+    public static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 统计创建和绑定次数的Adapter，每个分组头都悬浮
+     */
+    public static class CountingAdapter extends QuickAdapter<MainActivity.IViewType> implements IStickSections {
+        public int createCount;
+        public int convertCount;
+        // 悬浮布局的绑定次数
+        public int stickBindCount;
+        // 绑定过的位置
+        public final BitSet boundPositions = new BitSet();
+        private int[] mStickPositions;
+
+        public CountingAdapter(Context context, List<MainActivity.IViewType> data) {
+            super(context, data, createSupport());
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            createCount++;
+            return super.onCreateViewHolder(parent, viewType);
+        }
+
+        @Override
+        protected void convert(QuickViewHolder holder, MainActivity.IViewType item, int position) {
+            convertCount++;
+            // 悬浮的ViewHolder绑定时已经在悬浮层里了，列表的还没添加或者在列表里
+            ViewParent parent = holder.getView().getParent();
+            if (parent != null && !(parent instanceof RecyclerView) && !(parent instanceof AbsListView)) {
+                stickBindCount++;
+            } else {
+                boundPositions.set(position);
+            }
+            holder.setText(R.id.tv, item.toString());
+        }
+
+        @Override
+        public int[] getStickPositions() {
+            if (mStickPositions == null) {
+                List<MainActivity.IViewType> data = getSnapshot();
+                int[] positions = new int[data.size()];
+                int count = 0;
+                for (int i = 0; i < positions.length; i++) {
+                    if (data.get(i) instanceof MultiBean) {
+                        positions[count++] = i;
+                    }
+                }
+                mStickPositions = Arrays.copyOf(positions, count);
+            }
+            return mStickPositions;
+        }
+
+        /**
+         * 每个绑定过的条目平均绑定了几次
+         */
+        public float convertsPerItem() {
+            int items = boundPositions.cardinality();
+            return items == 0 ? 0 : (float) (convertCount - stickBindCount) / items;
+        }
+
+        public void resetCounters() {
+            createCount = 0;
+            convertCount = 0;
+            stickBindCount = 0;
+            boundPositions.clear();
+        }
+    }
+}
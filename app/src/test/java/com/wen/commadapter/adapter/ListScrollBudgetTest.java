@@ -0,0 +1,85 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.widget.ListView;
+
+import com.wen.commadapter.ScrollHarness;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ListView滚动时的加载和绑定预算：滚动中一直复用convertView，不再加载布局
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ListScrollBudgetTest {
+    // Robolectric 4.3、SDK 26实测：一屏37个，滚完10k多加载3个；跳到100k末尾后再滚到底多加载2个
+    private static final int INFLATION_SLACK = 2 * ScrollHarness.VIEW_TYPES;
+    // 实测10k是1.0008次，100k跳转后是1.013次
+    private static final float CONVERTS_PER_ITEM = 1.02f;
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void sweep10k() {
+        int size = 10000;
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(size));
+        ListView listView = new ListView(mActivity);
+        listView.setAdapter(adapter);
+        mActivity.setContentView(listView);
+        ScrollHarness.layout(listView);
+        int firstScreen = listView.getChildCount();
+        assertTrue(firstScreen > 0);
+        int firstInflates = adapter.getListInflateCount();
+
+        ScrollHarness.sweep(listView);
+
+        assertEquals(size, adapter.boundPositions.cardinality());
+        int inflates = adapter.getListInflateCount();
+        assertTrue("inflated " + inflates + " for " + firstScreen + " visible",
+                inflates <= firstScreen + INFLATION_SLACK);
+        // 第一屏之后都是复用的
+        assertTrue(adapter.getListReuseCount() >= size - firstInflates - INFLATION_SLACK);
+        assertTrue("converts per item " + adapter.convertsPerItem(),
+                adapter.convertsPerItem() <= CONVERTS_PER_ITEM);
+    }
+
+    @Test
+    public void sweep100kAfterJump() {
+        int size = 100000;
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(size));
+        ListView listView = new ListView(mActivity);
+        listView.setAdapter(adapter);
+        mActivity.setContentView(listView);
+        ScrollHarness.layout(listView);
+        int firstScreen = listView.getChildCount();
+
+        // 跳到最后一屏附近再滚到底
+        listView.setSelection(size - firstScreen * 3);
+        ScrollHarness.layout(listView);
+        adapter.resetCounters();
+        int inflatesBefore = adapter.getListInflateCount();
+        ScrollHarness.sweep(listView);
+
+        assertTrue(adapter.boundPositions.get(size - 1));
+        assertTrue(adapter.getListInflateCount() - inflatesBefore <= INFLATION_SLACK);
+        assertTrue("converts per item " + adapter.convertsPerItem(),
+                adapter.convertsPerItem() <= CONVERTS_PER_ITEM);
+    }
+}
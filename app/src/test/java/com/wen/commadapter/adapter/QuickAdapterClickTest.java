@@ -0,0 +1,84 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.wen.commadapter.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 共用的点击监听：点击时按位置取数据，ViewHolder换了Adapter后不再交给原来的
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickAdapterClickTest {
+    private Activity mActivity;
+    private FrameLayout mParent;
+    private int mClicks;
+    private String mClickedItem;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mParent = new FrameLayout(mActivity);
+    }
+
+    private QuickAdapter<String> createAdapter(List<String> data) {
+        return new QuickAdapter<String>(mActivity, data, R.layout.item_list) {
+            @Override
+            protected void convert(QuickViewHolder holder, String item, int position) {
+                holder.setText(R.id.tv, item);
+            }
+        };
+    }
+
+    private final QuickAdapter.OnItemClickListener<String> mListener = new QuickAdapter.OnItemClickListener<String>() {
+        @Override
+        public void onItemClick(QuickAdapter<String> adapter, View view, String item, int position) {
+            mClicks++;
+            mClickedItem = item;
+        }
+    };
+
+    @Test
+    public void dispatchesBoundItem() {
+        QuickAdapter<String> adapter = createAdapter(Arrays.asList("a", "b"));
+        adapter.setOnItemClickListener(mListener);
+        QuickViewHolder holder = (QuickViewHolder) adapter.onCreateViewHolder(mParent, 0);
+        adapter.onBindViewHolder(holder, 1);
+
+        holder.itemView.performClick();
+        assertEquals(1, mClicks);
+        assertEquals("b", mClickedItem);
+    }
+
+    @Test
+    public void resetsClicksWhenAdopted() {
+        QuickAdapter<String> first = createAdapter(Arrays.asList("a", "b"));
+        first.setOnItemClickListener(mListener);
+        QuickViewHolder holder = (QuickViewHolder) first.onCreateViewHolder(mParent, 0);
+        first.onBindViewHolder(holder, 1);
+
+        // 从共用回收池给了没有设置点击事件的Adapter
+        QuickAdapter<String> second = createAdapter(Arrays.asList("x"));
+        second.onBindViewHolder(holder, 0);
+
+        holder.itemView.performClick();
+        assertEquals(0, mClicks);
+        assertNull(holder.itemView.getTag(R.id.view_holder));
+    }
+}
@@ -0,0 +1,279 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.widget.Filter;
+
+import com.wen.commadapter.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 后台过滤：按下标合并出最少的通知，条件变长时只查上次的结果，新条件让旧的作废
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickAdapterFilterTest {
+    private final List<Runnable> mPending = new ArrayList<>();
+    private QuickAdapter<String> mAdapter;
+    private int mMatchCalls;
+    private int mChangedCalls;
+    private int mRangeCalls;
+    private int mRemovedItems;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        // 后台任务先攒着，测试里决定什么时候执行
+        QuickExecutors.setBackground(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPending.add(command);
+            }
+        });
+        mAdapter = new QuickAdapter<String>(activity, Arrays.asList("apple", "banana", "avocado", "cherry", "apricot"),
+                R.layout.item_list) {
+            @Override
+            protected void convert(QuickViewHolder holder, String item, int position) {
+                holder.setText(R.id.tv, item);
+            }
+        };
+        mAdapter.setFilterPredicate(new QuickAdapter.FilterPredicate<String>() {
+            @Override
+            public boolean matches(String item, CharSequence constraint) {
+                mMatchCalls++;
+                return item.startsWith(constraint.toString());
+            }
+        });
+        RecyclerView recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.setAdapter(mAdapter);
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mChangedCalls++;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mRangeCalls++;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mRangeCalls++;
+                mRemovedItems += itemCount;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        QuickExecutors.setBackground(null);
+    }
+
+    private void runPending() {
+        while (!mPending.isEmpty()) {
+            mPending.remove(0).run();
+        }
+    }
+
+    @Test
+    public void appliesRangeNotifications() {
+        mAdapter.startFiltering("a");
+        runPending();
+
+        assertEquals(Arrays.asList("apple", "avocado", "apricot"), mAdapter.getSnapshot());
+        assertEquals(0, mChangedCalls);
+        assertTrue(mRangeCalls > 0);
+
+        // 清空条件回到完整数据
+        mAdapter.startFiltering("");
+        runPending();
+        assertEquals(5, mAdapter.getItemCount());
+        assertEquals(0, mChangedCalls);
+        assertNull(mAdapter.getFilterConstraint());
+    }
+
+    @Test
+    public void narrowsFromPreviousResult() {
+        mAdapter.startFiltering("a");
+        runPending();
+        mMatchCalls = 0;
+
+        mAdapter.startFiltering("ap");
+        runPending();
+
+        assertEquals(Arrays.asList("apple", "apricot"), mAdapter.getSnapshot());
+        // 只检查了上次的三条
+        assertEquals(3, mMatchCalls);
+    }
+
+    @Test
+    public void newQueryCancelsPending() {
+        mAdapter.startFiltering("b");
+        mAdapter.startFiltering("c");
+        mMatchCalls = 0;
+        runPending();
+
+        assertEquals(Arrays.asList("cherry"), mAdapter.getSnapshot());
+        // 第一次在开始前就作废了
+        assertEquals(5, mMatchCalls);
+    }
+
+    @Test
+    public void replaceAllRefilters() {
+        mAdapter.startFiltering("a");
+        runPending();
+
+        mAdapter.replaceAll(Arrays.asList("almond", "blueberry"));
+        runPending();
+
+        assertEquals(Arrays.asList("almond"), mAdapter.getSnapshot());
+        assertEquals("a", mAdapter.getFilterConstraint().toString());
+    }
+
+    @Test
+    public void clearRemovesDisplayedRows() {
+        mAdapter.startFiltering("a");
+        runPending();
+        mRemovedItems = 0;
+
+        mAdapter.clear();
+
+        // 显示的是过滤后的三条
+        assertEquals(3, mRemovedItems);
+        assertEquals(0, mAdapter.getItemCount());
+        assertNull(mAdapter.getFilterConstraint());
+    }
+
+    @Test
+    public void pagedSourceDropsPendingFilter() {
+        mAdapter.startFiltering("a");
+        mAdapter.setPagedSource(new QuickPagedSource<String>() {
+            @Override
+            public int getTotalCount() {
+                return 0;
+            }
+
+            @Override
+            public List<String> loadPage(int start, int count) {
+                return new ArrayList<>();
+            }
+        }, 10);
+        List<String> paged = mAdapter.getSnapshot();
+        runPending();
+
+        assertSame(paged, mAdapter.getSnapshot());
+        assertNull(mAdapter.getFilterConstraint());
+    }
+
+    @Test
+    public void publicFilterReportsCount() throws InterruptedException {
+        // Filter自己的线程过滤，数量通过FilterListener返回
+        final int[] count = {-1};
+        mAdapter.getFilter().filter("a", new Filter.FilterListener() {
+            @Override
+            public void onFilterComplete(int c) {
+                count[0] = c;
+            }
+        });
+        for (int i = 0; i < 200 && count[0] < 0; i++) {
+            Thread.sleep(10);
+            ShadowLooper.idleMainLooper();
+            Robolectric.flushBackgroundThreadScheduler();
+        }
+
+        assertEquals(3, count[0]);
+        assertEquals(Arrays.asList("apple", "avocado", "apricot"), mAdapter.getSnapshot());
+    }
+
+    @Test
+    public void addWhileFiltered() {
+        mAdapter.startFiltering("a");
+        runPending();
+
+        mAdapter.add("almond");
+        mAdapter.add("blueberry");
+        mAdapter.addFirst("acorn");
+        // 只显示满足条件的
+        assertEquals(Arrays.asList("acorn", "apple", "avocado", "apricot", "almond"), mAdapter.getSnapshot());
+
+        mAdapter.startFiltering("");
+        runPending();
+        assertEquals(Arrays.asList("acorn", "apple", "banana", "avocado", "cherry", "apricot", "almond", "blueberry"),
+                mAdapter.getSnapshot());
+    }
+
+    @Test
+    public void removeAndSetWhileFiltered() {
+        mAdapter.startFiltering("a");
+        runPending();
+
+        mAdapter.remove(1);
+        assertEquals(Arrays.asList("apple", "apricot"), mAdapter.getSnapshot());
+        // 改了之后不满足条件，不再显示
+        mAdapter.set(0, "berry");
+        assertEquals(Arrays.asList("apricot"), mAdapter.getSnapshot());
+
+        mAdapter.startFiltering("ap");
+        runPending();
+        assertEquals(Arrays.asList("apricot"), mAdapter.getSnapshot());
+
+        mAdapter.startFiltering("");
+        runPending();
+        assertEquals(Arrays.asList("berry", "banana", "cherry", "apricot"), mAdapter.getSnapshot());
+    }
+
+    @Test
+    public void editDuringPendingFilterRefilters() {
+        mAdapter.startFiltering("a");
+        mAdapter.add("almond");
+        runPending();
+
+        assertEquals(Arrays.asList("apple", "avocado", "apricot", "almond"), mAdapter.getSnapshot());
+    }
+
+    @Test
+    public void pendingDiffGoesThroughFilter() {
+        mAdapter.setDiffCallback(new QuickDiffCallback<String>() {
+            @Override
+            public boolean areItemsTheSame(String oldItem, String newItem) {
+                return oldItem.equals(newItem);
+            }
+
+            @Override
+            public boolean areContentsTheSame(String oldItem, String newItem) {
+                return true;
+            }
+        });
+        mAdapter.submitList(Arrays.asList("apple", "avocado", "berry"));
+        mAdapter.startFiltering("a");
+        runPending();
+
+        // 差异算完时已经在过滤，新数据按条件过滤后显示
+        assertEquals(Arrays.asList("apple", "avocado"), mAdapter.getSnapshot());
+        mAdapter.startFiltering("");
+        runPending();
+        assertEquals(Arrays.asList("apple", "avocado", "berry"), mAdapter.getSnapshot());
+    }
+}
@@ -0,0 +1,108 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+
+import com.wen.commadapter.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * submitList计算期间直接修改了数据，旧的结果丢弃，不会覆盖新数据
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickAdapterSubmitTest {
+    private final List<Runnable> mPending = new ArrayList<>();
+    private QuickAdapter<String> mAdapter;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        QuickExecutors.setBackground(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPending.add(command);
+            }
+        });
+        mAdapter = new QuickAdapter<String>(activity, Arrays.asList("a", "b"), R.layout.item_list) {
+            @Override
+            protected void convert(QuickViewHolder holder, String item, int position) {
+                holder.setText(R.id.tv, item);
+            }
+        };
+        mAdapter.setDiffCallback(new QuickDiffCallback<String>() {
+            @Override
+            public boolean areItemsTheSame(String oldItem, String newItem) {
+                return oldItem.equals(newItem);
+            }
+
+            @Override
+            public boolean areContentsTheSame(String oldItem, String newItem) {
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        QuickExecutors.setBackground(null);
+    }
+
+    private void runPending() {
+        while (!mPending.isEmpty()) {
+            mPending.remove(0).run();
+        }
+    }
+
+    @Test
+    public void replaceAllDropsPendingDiff() {
+        mAdapter.submitList(Arrays.asList("a", "b", "c"));
+        mAdapter.replaceAll(Arrays.asList("x"));
+        runPending();
+
+        assertEquals(Arrays.asList("x"), mAdapter.getSnapshot());
+        assertTrue(mPending.isEmpty());
+    }
+
+    @Test
+    public void clearDropsPendingDiff() {
+        mAdapter.submitList(Arrays.asList("a", "b", "c"));
+        mAdapter.clear();
+        runPending();
+
+        assertEquals(0, mAdapter.getItemCount());
+    }
+
+    @Test
+    public void appliesLatestSubmit() {
+        mAdapter.submitList(Arrays.asList("a", "b", "c"));
+        runPending();
+
+        assertEquals(Arrays.asList("a", "b", "c"), mAdapter.getSnapshot());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedGetDataIsMutableCopy() {
+        List<String> data = mAdapter.getData();
+        data.add("z");
+
+        assertEquals(Arrays.asList("a", "b", "z"), data);
+        assertEquals(Arrays.asList("a", "b"), mAdapter.getSnapshot());
+    }
+}
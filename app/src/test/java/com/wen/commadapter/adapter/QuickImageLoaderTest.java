@@ -0,0 +1,228 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 异步加载图片：缩小倍数、缓存上限、过期结果丢弃、等布局完成再按测量大小加载，只用本地文件
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickImageLoaderTest {
+    private static final int SIZE = 64;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private Activity mActivity;
+    private ImageView mImageView;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mImageView = new ImageView(mActivity);
+        // 在当前线程解码，方便控制结果什么时候送到主线程
+        QuickExecutors.setBackground(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        QuickExecutors.setBackground(null);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    private File writeImage(String name) throws IOException {
+        File file = mFolder.newFile(name);
+        Bitmap bitmap = Bitmap.createBitmap(SIZE * 4, SIZE * 4, Bitmap.Config.ARGB_8888);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private Bitmap shownBitmap() {
+        return mImageView.getDrawable() instanceof BitmapDrawable
+                ? ((BitmapDrawable) mImageView.getDrawable()).getBitmap() : null;
+    }
+
+    @Test
+    public void sampleSizeKeepsTargetCovered() {
+        assertEquals(1, QuickImageLoader.computeSampleSize(100, 100, 100, 100));
+        assertEquals(1, QuickImageLoader.computeSampleSize(199, 199, 100, 100));
+        assertEquals(2, QuickImageLoader.computeSampleSize(200, 200, 100, 100));
+        assertEquals(4, QuickImageLoader.computeSampleSize(4000, 3000, 800, 600));
+        // 一边够大另一边不够，不能缩小
+        assertEquals(1, QuickImageLoader.computeSampleSize(4000, 100, 100, 100));
+        assertEquals(1, QuickImageLoader.computeSampleSize(0, 0, 100, 100));
+    }
+
+    @Test
+    public void staleResultIsIgnored() throws IOException {
+        QuickImageLoader loader = new QuickImageLoader(1 << 20);
+        QuickImageLoader.Source first = QuickImageLoader.Source.file(writeImage("first.png"));
+        QuickImageLoader.Source second = QuickImageLoader.Source.file(writeImage("second.png"));
+
+        ShadowLooper.pauseMainLooper();
+        loader.load(mImageView, first, 0, SIZE, SIZE);
+        // 条目被复用，换成第二张图片
+        loader.load(mImageView, second, 0, SIZE, SIZE);
+        ShadowLooper.unPauseMainLooper();
+
+        Bitmap shown = shownBitmap();
+        assertNotNull(shown);
+        assertSame(loader.getCached(second, SIZE, SIZE), shown);
+    }
+
+    @Test
+    public void cancelKeepsPlaceholder() throws IOException {
+        QuickImageLoader loader = new QuickImageLoader(1 << 20);
+        QuickImageLoader.Source source = QuickImageLoader.Source.file(writeImage("image.png"));
+
+        ShadowLooper.pauseMainLooper();
+        loader.load(mImageView, source, 0, SIZE, SIZE);
+        QuickImageLoader.cancel(mImageView);
+        ShadowLooper.unPauseMainLooper();
+
+        assertNull(shownBitmap());
+    }
+
+    @Test
+    public void cacheIsBoundedByBytes() throws IOException {
+        QuickImageLoader.Source first = QuickImageLoader.Source.file(writeImage("first.png"));
+        QuickImageLoader probe = new QuickImageLoader(Integer.MAX_VALUE);
+        probe.load(mImageView, first, 0, SIZE, SIZE);
+        int oneImage = probe.getCacheBytes();
+        assertTrue(oneImage > 0);
+
+        // 只能放下一张
+        QuickImageLoader loader = new QuickImageLoader(oneImage);
+        loader.load(mImageView, first, 0, SIZE, SIZE);
+        loader.load(new ImageView(mImageView.getContext()),
+                QuickImageLoader.Source.file(writeImage("second.png")), 0, SIZE, SIZE);
+
+        assertTrue(loader.getCacheBytes() <= oneImage);
+        assertNull(loader.getCached(first, SIZE, SIZE));
+    }
+
+    @Test
+    public void cachedImageIsShownImmediately() throws IOException {
+        QuickImageLoader loader = new QuickImageLoader(1 << 20);
+        QuickImageLoader.Source source = QuickImageLoader.Source.file(writeImage("image.png"));
+        loader.load(mImageView, source, 0, SIZE, SIZE);
+
+        ImageView other = new ImageView(mImageView.getContext());
+        ShadowLooper.pauseMainLooper();
+        loader.load(other, source, 0, SIZE, SIZE);
+        assertSame(loader.getCached(source, SIZE, SIZE), ((BitmapDrawable) other.getDrawable()).getBitmap());
+    }
+
+    /**
+     * 把控件放进挂在窗口上的父布局，窗口自己的布局先暂停，测试里手动布局
+     */
+    private FrameLayout attach() {
+        ShadowLooper.pauseMainLooper();
+        FrameLayout parent = new FrameLayout(mActivity);
+        parent.addView(mImageView, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        content().addView(parent);
+        return parent;
+    }
+
+    private ViewGroup content() {
+        return (ViewGroup) mActivity.findViewById(android.R.id.content);
+    }
+
+    private static void layout(View parent) {
+        parent.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, SIZE, SIZE);
+    }
+
+    @Test
+    public void waitsForLayoutBeforeDecoding() throws IOException {
+        QuickImageLoader loader = new QuickImageLoader(1 << 20);
+        QuickImageLoader.Source source = QuickImageLoader.Source.file(writeImage("image.png"));
+        FrameLayout parent = attach();
+
+        loader.load(mImageView, source, 0);
+        // 还没测量，不能按屏幕大小解码
+        assertEquals(0, loader.getCacheBytes());
+
+        layout(parent);
+        mImageView.getViewTreeObserver().dispatchOnPreDraw();
+        ShadowLooper.unPauseMainLooper();
+
+        assertNotNull(loader.getCached(source, SIZE, SIZE));
+        assertSame(loader.getCached(source, SIZE, SIZE), shownBitmap());
+    }
+
+    @Test
+    public void detachBeforeLayoutStopsWaiting() throws IOException {
+        QuickImageLoader loader = new QuickImageLoader(1 << 20);
+        QuickImageLoader.Source source = QuickImageLoader.Source.file(writeImage("image.png"));
+        FrameLayout parent = attach();
+        ViewTreeObserver windowObserver = content().getViewTreeObserver();
+
+        loader.load(mImageView, source, 0);
+        content().removeView(parent);
+        // 离开窗口后窗口不再引用这个控件，布局完成也不会加载
+        layout(parent);
+        windowObserver.dispatchOnPreDraw();
+        assertEquals(0, loader.getCacheBytes());
+
+        // 重新挂上窗口后继续等布局
+        content().addView(parent);
+        layout(parent);
+        windowObserver.dispatchOnPreDraw();
+        assertNotNull(loader.getCached(source, SIZE, SIZE));
+
+        // 取消之后窗口上也没有残留的监听
+        loader.clear();
+        ImageView other = new ImageView(mActivity);
+        parent.addView(other, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        loader.load(other, source, 0);
+        QuickImageLoader.cancel(other);
+        layout(parent);
+        windowObserver.dispatchOnPreDraw();
+        assertEquals(0, loader.getCacheBytes());
+    }
+}
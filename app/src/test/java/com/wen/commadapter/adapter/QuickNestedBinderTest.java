@@ -0,0 +1,133 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.wen.commadapter.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 嵌套列表：共用回收池、Adapter只创建一次、按key恢复滚动位置、同一份数据不重新绑定
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickNestedBinderTest {
+    private static final int INNER_ID = 100;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 200;
+
+    private Activity mActivity;
+    private RecyclerView mInner;
+    private QuickViewHolder mHolder;
+    private QuickNestedBinder<String> mBinder;
+    private int mCreatedAdapters;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        FrameLayout row = new FrameLayout(mActivity);
+        mInner = new RecyclerView(mActivity);
+        mInner.setId(INNER_ID);
+        row.addView(mInner);
+        mActivity.setContentView(row);
+        mHolder = new QuickViewHolder(row);
+        mBinder = new QuickNestedBinder<>(new QuickNestedBinder.AdapterFactory<String>() {
+            @Override
+            public QuickAdapter<String> create(Context context) {
+                mCreatedAdapters++;
+                return new QuickAdapter<String>(context, Collections.<String>emptyList(), R.layout.item_list) {
+                    @Override
+                    protected void convert(QuickViewHolder holder, String item, int position) {
+                        holder.setText(R.id.tv, item);
+                    }
+                };
+            }
+        }, 4);
+    }
+
+    private static List<String> children(String prefix) {
+        List<String> data = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            data.add(prefix + i);
+        }
+        return data;
+    }
+
+    private void layout() {
+        mInner.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mInner.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private int firstVisible() {
+        return ((LinearLayoutManager) mInner.getLayoutManager()).findFirstVisibleItemPosition();
+    }
+
+    @Test
+    public void restoresScrollByKey() {
+        mBinder.bind(mHolder, INNER_ID, "a", children("a"));
+        layout();
+        ((LinearLayoutManager) mInner.getLayoutManager()).scrollToPositionWithOffset(10, 0);
+        layout();
+        assertEquals(10, firstVisible());
+
+        // 外层条目被复用到另一行
+        mBinder.bind(mHolder, INNER_ID, "b", children("b"));
+        layout();
+        assertEquals(0, firstVisible());
+
+        mBinder.bind(mHolder, INNER_ID, "a", children("a"));
+        layout();
+        assertEquals(10, firstVisible());
+    }
+
+    @Test
+    public void configuresInnerListOnce() {
+        mBinder.bind(mHolder, INNER_ID, "a", children("a"));
+        RecyclerView.Adapter adapter = mInner.getAdapter();
+        mBinder.bind(mHolder, INNER_ID, "b", children("b"));
+
+        assertSame(adapter, mInner.getAdapter());
+        assertEquals(1, mCreatedAdapters);
+        assertSame(mBinder.getRecycledViewPool(), mInner.getRecycledViewPool());
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mInner.getLayoutManager();
+        assertEquals(LinearLayoutManager.HORIZONTAL, layoutManager.getOrientation());
+        assertTrue(layoutManager.getRecycleChildrenOnDetach());
+    }
+
+    @Test
+    public void skipsRebindOfSameList() {
+        List<String> children = children("a");
+        mBinder.bind(mHolder, INNER_ID, "a", children);
+        QuickAdapter<String> adapter = (QuickAdapter<String>) mInner.getAdapter();
+        List<String> bound = adapter.getSnapshot();
+
+        // 外层局部刷新，同一行同一份数据
+        mBinder.bind(mHolder, INNER_ID, "a", children);
+        assertSame(bound, adapter.getSnapshot());
+
+        // 数据换了要重新设置
+        mBinder.bind(mHolder, INNER_ID, "a", children("a"));
+        assertNotSame(bound, adapter.getSnapshot());
+    }
+}
@@ -0,0 +1,126 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.text.Layout;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 文本预排版：按key缓存，文本变了不用旧结果，setText直接用排版好的Layout
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class QuickTextSpecTest {
+    private static final int TEXT_ID = 1;
+    private static final int WIDTH = 300;
+
+    private Activity mActivity;
+    private QuickTextView mTextView;
+    private QuickTextSpec mSpec;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mTextView = new QuickTextView(mActivity);
+        mTextView.setId(TEXT_ID);
+        mSpec = new QuickTextSpec(TEXT_ID, mTextView.getPaint(), WIDTH);
+    }
+
+    @Test
+    public void cachesByKeyAndText() {
+        Layout layout = mSpec.precompute("a", "hello");
+        assertEquals(WIDTH, layout.getWidth());
+        assertSame(layout, mSpec.precompute("a", "hello"));
+        assertSame(layout, mSpec.get("a", "hello"));
+        // 同一个key文本变了，旧的排版不能用
+        assertNull(mSpec.get("a", "changed"));
+        assertNotSame(layout, mSpec.precompute("a", "changed"));
+    }
+
+    @Test
+    public void setTextUsesPrecomputedLayout() {
+        FrameLayout root = new FrameLayout(mActivity);
+        root.addView(mTextView);
+        QuickViewHolder holder = new QuickViewHolder(root);
+        Layout layout = mSpec.precompute("a", "hello");
+
+        holder.setPrecomputed(TEXT_ID, layout);
+        holder.setText(TEXT_ID, "hello");
+        assertSame(layout, mTextView.getLayout());
+
+        // 文本对不上时自己排版
+        holder.setText(TEXT_ID, "other");
+        assertNull(mTextView.getLayout());
+        assertEquals("other", mTextView.getText().toString());
+    }
+
+    @Test
+    public void recolorsPrecomputedLayout() {
+        FrameLayout root = new FrameLayout(mActivity);
+        root.addView(mTextView);
+        QuickViewHolder holder = new QuickViewHolder(root);
+        Layout layout = mSpec.precompute("a", "hello");
+        holder.setPrecomputed(TEXT_ID, layout);
+        holder.setText(TEXT_ID, "hello");
+        assertSame(layout, mTextView.getLayout());
+
+        // 已经用了预排版的Layout，再改颜色也要生效
+        holder.setTextColor(TEXT_ID, Color.RED);
+        draw();
+        assertEquals(Color.RED, layout.getPaint().getColor());
+
+        mTextView.setTextColor(Color.BLUE);
+        draw();
+        assertEquals(Color.BLUE, layout.getPaint().getColor());
+    }
+
+    @Test
+    public void sameCharactersDifferentSpans() {
+        SpannableString red = new SpannableString("hello");
+        red.setSpan(new ForegroundColorSpan(Color.RED), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        SpannableString blue = new SpannableString("hello");
+        blue.setSpan(new ForegroundColorSpan(Color.BLUE), 0, 5, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        Layout layout = mSpec.precompute("a", red);
+        assertSame(layout, mSpec.get("a", red));
+        // 字符一样但样式不同，不能用旧的排版
+        assertNull(mSpec.get("a", blue));
+
+        mTextView.setText(red);
+        measure();
+        assertNotNull(mTextView.getLayout());
+        mTextView.setText(blue);
+        assertSame(blue, mTextView.getText());
+        assertNull(mTextView.getLayout());
+    }
+
+    private void measure() {
+        mTextView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    }
+
+    private void draw() {
+        // Robolectric的View.draw不会调用onDraw
+        mTextView.onDraw(new Canvas(Bitmap.createBitmap(WIDTH, 100, Bitmap.Config.ARGB_8888)));
+    }
+}
@@ -0,0 +1,144 @@
+package com.wen.commadapter.adapter;
+
+import android.app.Activity;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+import com.wen.commadapter.ScrollHarness;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RecyclerView滚动时的加载和绑定预算：
+ * 加载次数只和一屏的条目数有关，每个滚进来的条目只绑定一次，重复绑定不分配内存
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class RecyclerScrollBudgetTest {
+    // 一屏之外还允许加载的条目：每种类型的缓存和预取
+    private static final int INFLATION_SLACK = 4 * ScrollHarness.VIEW_TYPES;
+    private static final float CONVERTS_PER_ITEM = 1.1f;
+    private static final long BYTES_PER_REBIND = 128;
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    private RecyclerView createRecyclerView(RecyclerView.LayoutManager layoutManager, QuickAdapter<?> adapter) {
+        RecyclerView recyclerView = new RecyclerView(mActivity);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+        mActivity.setContentView(recyclerView);
+        ScrollHarness.layout(recyclerView);
+        return recyclerView;
+    }
+
+    @Test
+    public void linearSweep10k() {
+        int size = 10000;
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(size));
+        RecyclerView recyclerView = createRecyclerView(new LinearLayoutManager(mActivity), adapter);
+        int firstScreen = recyclerView.getChildCount();
+        assertTrue(firstScreen > 0);
+
+        ScrollHarness.sweep(recyclerView);
+
+        assertEquals(size, adapter.boundPositions.cardinality());
+        assertTrue("inflated " + adapter.createCount + " for " + firstScreen + " visible",
+                adapter.createCount <= firstScreen + INFLATION_SLACK);
+        assertTrue("converts per item " + adapter.convertsPerItem(),
+                adapter.convertsPerItem() <= CONVERTS_PER_ITEM);
+    }
+
+    @Test
+    public void gridJumps100k() {
+        int size = 100000;
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(size));
+        RecyclerView recyclerView = createRecyclerView(new GridLayoutManager(mActivity, 3), adapter);
+        int firstScreen = recyclerView.getChildCount();
+
+        // 跳到不同的位置，每次往下滚三屏
+        for (int jump = 0; jump < 10; jump++) {
+            recyclerView.scrollToPosition(jump * (size / 10));
+            ScrollHarness.layout(recyclerView);
+            ScrollHarness.sweep(recyclerView, ScrollHarness.HEIGHT * 3);
+        }
+
+        // 跳转之后整屏换掉，回收池里每种类型最多5个，超出的才会新建
+        assertTrue("inflated " + adapter.createCount + " for " + firstScreen + " visible",
+                adapter.createCount <= firstScreen * 2 + INFLATION_SLACK);
+        assertTrue("converts per item " + adapter.convertsPerItem(),
+                adapter.convertsPerItem() <= CONVERTS_PER_ITEM);
+    }
+
+    @Test
+    public void staggeredFullSpanAfterLateLayoutManager() {
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(100));
+        // 先setAdapter再setLayoutManager
+        RecyclerView recyclerView = new RecyclerView(mActivity);
+        recyclerView.setAdapter(adapter);
+        recyclerView.setLayoutManager(new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL));
+        mActivity.setContentView(recyclerView);
+        ScrollHarness.layout(recyclerView);
+
+        int childCount = recyclerView.getChildCount();
+        assertTrue(childCount > 0);
+        for (int i = 0; i < childCount; i++) {
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            StaggeredGridLayoutManager.LayoutParams lp =
+                    (StaggeredGridLayoutManager.LayoutParams) holder.itemView.getLayoutParams();
+            if (holder.getAdapterPosition() % ScrollHarness.SECTION == 0) {
+                assertTrue(lp.isFullSpan());
+            } else {
+                assertFalse(lp.isFullSpan());
+            }
+        }
+    }
+
+    @Test
+    public void rebindAllocations() {
+        long start = ScrollHarness.allocatedBytes();
+        Assume.assumeTrue(start >= 0);
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(10000));
+        adapter.setMemoizeEnabled(true);
+        RecyclerView recyclerView = createRecyclerView(new LinearLayoutManager(mActivity), adapter);
+        ScrollHarness.sweep(recyclerView, ScrollHarness.HEIGHT);
+
+        // 先绑定一轮，让计数器和缓存的数组扩容完
+        int childCount = recyclerView.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            adapter.onBindViewHolder(holder, holder.getAdapterPosition());
+        }
+        int rounds = 100;
+        long before = ScrollHarness.allocatedBytes();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < childCount; i++) {
+                RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+                adapter.onBindViewHolder(holder, holder.getAdapterPosition());
+            }
+        }
+        long perBind = (ScrollHarness.allocatedBytes() - before) / (rounds * childCount);
+        assertTrue("allocated " + perBind + " bytes per bind", perBind <= BYTES_PER_REBIND);
+    }
+}
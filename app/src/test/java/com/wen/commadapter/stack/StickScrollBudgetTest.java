@@ -0,0 +1,71 @@
+package com.wen.commadapter.stack;
+
+import android.app.Activity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import com.wen.commadapter.R;
+import com.wen.commadapter.ScrollHarness;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 悬浮布局的预算：每种类型只创建一个悬浮ViewHolder，
+ * 每进入一个分组只绑定一次，滚动过程中不反复重新布局
+ */
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class StickScrollBudgetTest {
+    // 添加悬浮View、显示、第一次测量
+    private static final int RELAYOUT_BUDGET = 4;
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void sweep10kSections() {
+        int size = 10000;
+        mActivity.setContentView(R.layout.activity_main);
+        View root = mActivity.findViewById(android.R.id.content);
+        StickFrameLayout stickLayout = mActivity.findViewById(R.id.rsfl);
+        RecyclerView recyclerView = mActivity.findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(mActivity));
+        ScrollHarness.CountingAdapter adapter = new ScrollHarness.CountingAdapter(mActivity,
+                ScrollHarness.createData(size));
+        recyclerView.setAdapter(adapter);
+        ScrollHarness.layout(root);
+        int firstScreen = recyclerView.getChildCount();
+
+        ScrollHarness.sweep(recyclerView);
+
+        // 经过的分组数
+        int[] stickPositions = adapter.getStickPositions();
+        int lastFirstVisible = stickLayout.getScrollTracker().getFirstVisiblePosition();
+        int index = Arrays.binarySearch(stickPositions, lastFirstVisible);
+        int sections = (index >= 0 ? index : -index - 2) + 1;
+        assertTrue(sections > 1);
+
+        assertTrue("stick binds " + adapter.stickBindCount + " for " + sections + " sections",
+                adapter.stickBindCount <= sections + 1);
+        // 列表的加载加上一个悬浮的
+        assertTrue("inflated " + adapter.createCount + " for " + firstScreen + " visible",
+                adapter.createCount <= firstScreen + 4 * ScrollHarness.VIEW_TYPES + 1);
+        assertTrue("relayouts " + stickLayout.getRelayoutCount(),
+                stickLayout.getRelayoutCount() <= RELAYOUT_BUDGET);
+    }
+}